@@ -1,5 +1,11 @@
 #include <jni.h>
+#include <cstdint>
+#include <cstdlib>
+#include <algorithm>
+#include <cstring>
+#include <memory>
 #include <string>
+#include <vector>
 #include "libplatform/libplatform.h"
 #include "v8.h"
 
@@ -9,6 +15,7 @@
 #include "V8/ExternalData.h"
 #include "V8/FunctionCallbackData.h"
 #include "V8/InspectorClient.h"
+#include "V8/SerializerDelegate.h"
 
 // Underscore in method name must be escaped as "_1"
 // See: https://docs.oracle.com/javase/8/docs/technotes/guides/jni/spec/design.html#resolving_native_method_names
@@ -16,6 +23,45 @@
 
 Environment* Runtime::environment = nullptr;
 
+// Visits the elements of an array in [from, to), with a handle scope per element so that long arrays do not fill the
+// enclosing scope. Visitors return false when a conversion fails: if it threw in JavaScript, the error is rethrown in
+// Java, otherwise a Java exception is already pending.
+template<typename Visitor>
+static auto forEachElement(JNIEnv* env, Runtime* runtime, v8::Local<v8::Context> context, v8::Local<v8::Array> array,
+    uint32_t from, uint32_t to, Visitor visit) -> bool
+{
+    v8::TryCatch tryCatch(runtime->isolate);
+    for (uint32_t i = from; i < to; i++)
+    {
+        v8::HandleScope elementScope(runtime->isolate);
+        v8::Local<v8::Value> element;
+        if (!array->Get(context, i).ToLocal(&element) || !visit(i - from, element))
+        {
+            if (tryCatch.HasCaught())
+            {
+                runtime->throwExecutionException(env, context, &tryCatch);
+            }
+            return false;
+        }
+    }
+    return true;
+}
+
+// Deleter of the backing stores wrapping Java direct buffers: V8 may destroy a backing store on any thread, after the
+// last ArrayBuffer using it is collected, so the thread is attached to release the global reference to the buffer.
+static void releaseDirectBuffer(void* data, size_t length, void* deleterData)
+{
+    JNIEnv* env;
+    auto attachedThread = Runtime::environment->getCurrentThreadEnv(&env, JNI_VERSION);
+    if (attachedThread < 0) { return; }
+    env->DeleteGlobalRef(static_cast<jobject>(deleterData));
+    if (attachedThread == 1)
+    {
+        Runtime::environment->releaseCurrentThreadEnv();
+    }
+}
+
+
 extern "C"
 {
     JNIEXPORT auto JNICALL
@@ -61,10 +107,17 @@ extern "C"
     }
 
     JNIEXPORT auto JNICALL
-    JPF(createRuntime)(JNIEnv* env, jobject thiz, jobject runtime, jobject functionCache,
-        jobject typeGetterCache, jobject equalityCheckerCache, jobject externalCache) -> jlong
+    JPF(createRuntime)(JNIEnv* env, jobject thiz, jobject runtime, jobject functionCache, jobject externalCache) -> jlong
     {
-        return (new Runtime(env, runtime, functionCache, typeGetterCache, equalityCheckerCache, externalCache))->getHandle();
+        return (new Runtime(env, runtime, functionCache, externalCache))->getHandle();
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(createContext)(JNIEnv* env, jobject thiz, jlong parentHandle, jobject runtime, jobject functionCache,
+        jobject externalCache) -> jlong
+    {
+        Runtime* parent = Runtime::safeCast(env, parentHandle);
+        return (new Runtime(env, parent, runtime, functionCache, externalCache))->getHandle();
     }
 
     JNIEXPORT auto JNICALL
@@ -76,36 +129,342 @@ extern "C"
     JNIEXPORT void JNICALL
     JPF(releaseReference)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle)
     {
-        Runtime::safeCast(env, runtimeHandle);
-        Handle::Release(Handle::FromLong(referenceHandle));
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        v8::Locker locker(runtime->isolate);
+        v8::Isolate::Scope isolateScope(runtime->isolate);
+        runtime->handles->Delete(Handle::FromLong(referenceHandle));
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(releaseReferences)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlongArray referenceHandles)
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        jsize count = env->GetArrayLength(referenceHandles);
+        jlong* handles = env->GetLongArrayElements(referenceHandles, nullptr);
+        {
+            // A single lock acquisition for the whole batch
+            v8::Locker locker(runtime->isolate);
+            v8::Isolate::Scope isolateScope(runtime->isolate);
+            for (jsize i = 0; i < count; i++)
+            {
+                runtime->handles->Delete(Handle::FromLong(handles[i]));
+            }
+        }
+        env->ReleaseLongArrayElements(referenceHandles, handles, JNI_ABORT);
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(lockIsolate)(JNIEnv* env, jobject thiz, jlong runtimeHandle) -> jlong
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        // Lockers are recursive: while this one is held, the Locker taken by each call on the same thread is cheap.
+        auto* locker = new v8::Locker(runtime->isolate);
+        runtime->isolate->Enter();
+        return reinterpret_cast<jlong>(locker);
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(unlockIsolate)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong lockHandle)
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        runtime->isolate->Exit();
+        delete reinterpret_cast<v8::Locker*>(lockHandle);
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(performMicrotaskCheckpoint)(JNIEnv* env, jobject thiz, jlong runtimeHandle)
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        v8::Locker locker(runtime->isolate);
+        v8::Isolate::Scope isolateScope(runtime->isolate);
+        v8::HandleScope handleScope(runtime->isolate);
+        runtime->isolate->PerformMicrotaskCheckpoint();
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(collectGarbage)(JNIEnv* env, jobject thiz, jlong runtimeHandle)
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        v8::Locker locker(runtime->isolate);
+        v8::Isolate::Scope isolateScope(runtime->isolate);
+        runtime->isolate->LowMemoryNotification();
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(getHeapStatistics)(JNIEnv* env, jobject thiz, jlong runtimeHandle) -> jlongArray
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        v8::Locker locker(runtime->isolate);
+        v8::Isolate::Scope isolateScope(runtime->isolate);
+        v8::HeapStatistics heapStatistics;
+        runtime->isolate->GetHeapStatistics(&heapStatistics);
+
+        const jsize count = 6;
+        jlong values[count] = {
+            static_cast<jlong>(heapStatistics.total_heap_size()),
+            static_cast<jlong>(heapStatistics.used_heap_size()),
+            static_cast<jlong>(heapStatistics.heap_size_limit()),
+            static_cast<jlong>(heapStatistics.total_physical_size()),
+            static_cast<jlong>(heapStatistics.malloced_memory()),
+            static_cast<jlong>(heapStatistics.external_memory())
+        };
+        jlongArray result = env->NewLongArray(count);
+        env->SetLongArrayRegion(result, 0, count, values);
+        return result;
     }
 
     JNIEXPORT auto JNICALL
-    JPF(globalObjectReference)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jobject typeGetter,
-        jobject equalityChecker) -> jobject
+    JPF(globalObjectReference)(JNIEnv* env, jobject thiz, jlong runtimeHandle) -> jobject
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
         newLocalContext(runtime, context)
         v8::Local<v8::Object> global = context->Global();
-        return runtime->NewReference(env, context, global, typeGetter, equalityChecker);
+        return runtime->NewReference(env, context, global);
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(createCanonicalReferences)(JNIEnv* env, jobject thiz, jlong runtimeHandle) -> jobjectArray
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::Local<v8::Value> values[Runtime::CANONICAL_COUNT] = {
+            v8::Undefined(runtime->isolate),
+            v8::Null(runtime->isolate),
+            context->Global()
+        };
+
+        jobjectArray result = Runtime::environment->NewReferenceArray(env, Runtime::CANONICAL_COUNT);
+        for (int i = 0; i < Runtime::CANONICAL_COUNT; i++)
+        {
+            jobject item = runtime->NewReference(env, context, values[i]);
+            if (item == nullptr)
+            {
+                return nullptr;
+            }
+            env->SetObjectArrayElement(result, i, item);
+            env->DeleteLocalRef(item);
+        }
+        runtime->setCanonicalReferences(env, result);
+        return result;
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(executeScript)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jstring fileName, jstring sourceCode) -> jobject
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        v8::Local<v8::Value> result;
+        if (!runtime->evaluateScript(env, context, fileName, sourceCode, result)) { return nullptr; }
+
+        return runtime->NewReference(env, context, result);
+    }
+
+    // The following variants convert the result of the script before returning, so that no handle is created
+
+    JNIEXPORT void JNICALL
+    JPF(executeScriptIgnoringResult)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jstring fileName,
+        jstring sourceCode)
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        v8::Local<v8::Value> result;
+        runtime->evaluateScript(env, context, fileName, sourceCode, result);
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(executeScriptAsBoolean)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jstring fileName,
+        jstring sourceCode) -> jboolean
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        v8::Local<v8::Value> result;
+        if (!runtime->evaluateScript(env, context, fileName, sourceCode, result)) { return JNI_FALSE; }
+
+        return static_cast<jboolean>(result->BooleanValue(runtime->isolate));
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(executeScriptAsInt)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jstring fileName,
+        jstring sourceCode) -> jint
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        v8::Local<v8::Value> result;
+        if (!runtime->evaluateScript(env, context, fileName, sourceCode, result)) { return 0; }
+
+        // Converting an object calls its valueOf method, which can throw
+        v8::TryCatch tryCatch(runtime->isolate);
+        int32_t value;
+        if (!result->Int32Value(context).To(&value))
+        {
+            runtime->throwExecutionException(env, context, &tryCatch);
+            return 0;
+        }
+        return value;
     }
 
     JNIEXPORT auto JNICALL
-    JPF(executeScript)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jstring fileName, jstring sourceCode,
-        jobject typeGetter, jobject equalityChecker) -> jobject
+    JPF(executeScriptAsDouble)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jstring fileName,
+        jstring sourceCode) -> jdouble
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
         newLocalContext(runtime, context)
 
-        v8::Local<v8::String> name = runtime->createV8String(env, fileName);
-        v8::Local<v8::String> source = runtime->createV8String(env, sourceCode);
+        v8::Local<v8::Value> result;
+        if (!runtime->evaluateScript(env, context, fileName, sourceCode, result)) { return 0; }
+
+        v8::TryCatch tryCatch(runtime->isolate);
+        double value;
+        if (!result->NumberValue(context).To(&value))
+        {
+            runtime->throwExecutionException(env, context, &tryCatch);
+            return 0;
+        }
+        return value;
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(executeScriptAsString)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jstring fileName,
+        jstring sourceCode) -> jstring
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
 
-        v8::Local<v8::Script> script;
-        if (!runtime->compileScript(env, context, name, source, script)) { return nullptr; }
         v8::Local<v8::Value> result;
-        if (!runtime->runScript(env, context, script, result)) { return nullptr; }
+        if (!runtime->evaluateScript(env, context, fileName, sourceCode, result)) { return nullptr; }
+
+        v8::TryCatch tryCatch(runtime->isolate);
+        v8::Local<v8::String> string;
+        if (!result->ToString(context).ToLocal(&string))
+        {
+            runtime->throwExecutionException(env, context, &tryCatch);
+            return nullptr;
+        }
+        v8::String::Value unicodeString(runtime->isolate, string);
+        return env->NewString(*unicodeString, unicodeString.length());
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(terminateExecution)(JNIEnv* env, jobject thiz, jlong runtimeHandle)
+    {
+        // TerminateExecution is thread safe: it must not take the lock, which is held by the running script
+        Runtime::safeCast(env, runtimeHandle)->isolate->TerminateExecution();
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(cancelTerminateExecution)(JNIEnv* env, jobject thiz, jlong runtimeHandle)
+    {
+        // Unlike requesting it, cancelling a termination must not race with a script run by another thread
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        v8::Locker locker(runtime->isolate);
+        v8::Isolate::Scope isolateScope(runtime->isolate);
+        runtime->isolate->CancelTerminateExecution();
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(requestInterrupt)(JNIEnv* env, jobject thiz, jlong runtimeHandle)
+    {
+        // The callback runs on the thread executing JavaScript, at a safe point and with the isolate lock held
+        Runtime::safeCast(env, runtimeHandle)->isolate->RequestInterrupt([](v8::Isolate* isolate, void* data) {
+            JNIEnv* env;
+            auto attachedThread = Runtime::environment->getCurrentThreadEnv(&env, JNI_VERSION);
+            Runtime::environment->interruptScheduler(env);
+            if (env->ExceptionCheck() == JNI_TRUE)
+            {
+                // The running script must not observe a pending Java exception
+                env->ExceptionClear();
+            }
+            if (attachedThread == 1)
+            {
+                Runtime::environment->releaseCurrentThreadEnv();
+            }
+        }, nullptr);
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(serializeValue)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong valueHandle) -> jobject
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        v8::TryCatch tryCatch(runtime->isolate);
+        SerializerDelegate delegate(runtime->isolate);
+        v8::ValueSerializer serializer(runtime->isolate, &delegate);
+        serializer.WriteHeader();
+        if (serializer.WriteValue(context, Handle::FromLong(valueHandle)->GetLocal<v8::Value>()).IsNothing())
+        {
+            if (tryCatch.HasCaught())
+            {
+                runtime->throwExecutionException(env, context, &tryCatch);
+            }
+            else
+            {
+                runtime->throwExecutionException(env, u"Cannot serialize value.");
+            }
+            return nullptr;
+        }
+
+        // The buffer is handed to Java as is, without copying: it is freed by releaseSerializedValue
+        std::pair<uint8_t*, size_t> buffer = serializer.Release();
+        return env->NewDirectByteBuffer(buffer.first, static_cast<jlong>(buffer.second));
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(deserializeValue)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jobject buffer) -> jobject
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        auto* data = static_cast<const uint8_t*>(env->GetDirectBufferAddress(buffer));
+        auto size = static_cast<size_t>(env->GetDirectBufferCapacity(buffer));
+
+        v8::TryCatch tryCatch(runtime->isolate);
+        v8::ValueDeserializer deserializer(runtime->isolate, data, size);
+        v8::Local<v8::Value> value;
+        if (deserializer.ReadHeader(context).IsNothing() || !deserializer.ReadValue(context).ToLocal(&value))
+        {
+            if (tryCatch.HasCaught())
+            {
+                runtime->throwExecutionException(env, context, &tryCatch);
+            }
+            else
+            {
+                runtime->throwExecutionException(env, u"Cannot deserialize value.");
+            }
+            return nullptr;
+        }
+
+        return runtime->NewReference(env, context, value);
+    }
 
-        return runtime->NewReference(env, context, result, typeGetter, equalityChecker);
+    JNIEXPORT void JNICALL
+    JPF(releaseSerializedValue)(JNIEnv* env, jobject thiz, jobject buffer)
+    {
+        std::free(env->GetDirectBufferAddress(buffer));
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(getHandleStatistics)(JNIEnv* env, jobject thiz, jlong runtimeHandle) -> jlongArray
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        v8::Locker locker(runtime->isolate);
+        HandleAllocator* handles = runtime->handles;
+
+        const jsize count = 5;
+        jlong values[count] = {
+            handles->getAllocations(),
+            handles->getReleases(),
+            handles->getLiveHandles(),
+            handles->getCapacity(),
+            handles->getChunks()
+        };
+        jlongArray result = env->NewLongArray(count);
+        env->SetLongArrayRegion(result, 0, count, values);
+        return result;
     }
 
     JNIEXPORT auto JNICALL
@@ -117,11 +476,31 @@ extern "C"
     }
 
     JNIEXPORT auto JNICALL
-    JPF(newValue)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jobject type, jobject typeGetter,
-        jobject equalityChecker) -> jobject
+    JPF(getReferenceTypes)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlongArray referenceHandles) -> jobjectArray
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
-        return runtime->NewReference(env, new Handle(runtime->isolate), type, typeGetter, equalityChecker);
+        jsize count = env->GetArrayLength(referenceHandles);
+        jobjectArray result = Runtime::environment->NewTypeArray(env, count);
+        jlong* handles = env->GetLongArrayElements(referenceHandles, nullptr);
+        {
+            newLocalContext(runtime, context)
+            for (jsize i = 0; i < count; i++)
+            {
+                v8::HandleScope iterationScope(runtime->isolate);
+                // Types are global references to the enum values, so they must not be deleted
+                env->SetObjectArrayElement(result, i, runtime->getReferenceType(env, context,
+                    Handle::FromLong(handles[i])));
+            }
+        }
+        env->ReleaseLongArrayElements(referenceHandles, handles, JNI_ABORT);
+        return result;
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(newValue)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jobject type) -> jobject
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        return runtime->NewReference(env, runtime->handles->New(runtime->isolate), type);
     }
 
     JNIEXPORT auto JNICALL
@@ -135,6 +514,39 @@ extern "C"
         return static_cast<jboolean>(first->StrictEquals(second));
     }
 
+    JNIEXPORT auto JNICALL
+    JPF(getIdentityHash)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle) -> jint
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::Local<v8::Value> value = Handle::FromLong(referenceHandle)->GetLocal<v8::Value>();
+        // Hashes must agree with StrictEquals: 0 stands for "not computed" on the Java side, so it is never returned
+        if (value->IsObject())
+        {
+            return value.As<v8::Object>()->GetIdentityHash();
+        }
+        if (value->IsName())
+        {
+            // The hash of a string depends on its content, the one of a symbol on its identity
+            return value.As<v8::Name>()->GetIdentityHash();
+        }
+        if (value->IsNumber())
+        {
+            double number = value.As<v8::Number>()->Value();
+            if (number == 0)
+            {
+                // 0 and -0 are strictly equal
+                return 1;
+            }
+            int64_t bits;
+            std::memcpy(&bits, &number, sizeof(bits));
+            auto hash = static_cast<jint>(bits ^ (bits >> 32));
+            return hash == 0 ? 1 : hash;
+        }
+        // Oddballs are canonical and BigInts are rare as keys, so they can share the same hash
+        return 1;
+    }
+
     JNIEXPORT void JNICALL
     JPF(initUndefinedValue)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle)
     {
@@ -181,7 +593,14 @@ extern "C"
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
         newLocalContext(runtime, context)
-        return (Handle::FromLong(referenceHandle)->GetLocal<v8::Value>()->ToNumber(context)).ToLocalChecked()->Value();
+        v8::TryCatch tryCatch(runtime->isolate);
+        double value;
+        if (!Handle::FromLong(referenceHandle)->GetLocal<v8::Value>()->NumberValue(context).To(&value))
+        {
+            runtime->throwExecutionException(env, context, &tryCatch);
+            return 0;
+        }
+        return value;
     }
 
     JNIEXPORT void JNICALL
@@ -192,6 +611,29 @@ extern "C"
         Handle::FromLong(referenceHandle)->Set(v8::Number::New(runtime->isolate, (double)value));
     }
 
+    JNIEXPORT auto JNICALL
+    JPF(getIntValue)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle) -> jint
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::TryCatch tryCatch(runtime->isolate);
+        int32_t value;
+        if (!Handle::FromLong(referenceHandle)->GetLocal<v8::Value>()->Int32Value(context).To(&value))
+        {
+            runtime->throwExecutionException(env, context, &tryCatch);
+            return 0;
+        }
+        return value;
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(setIntValue)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle, jint value)
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        Handle::FromLong(referenceHandle)->Set(v8::Integer::New(runtime->isolate, (int32_t)value));
+    }
+
     JNIEXPORT void JNICALL
     JPF(initDoubleValue)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle)
     {
@@ -205,8 +647,14 @@ extern "C"
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
         newLocalContext(runtime, context)
-        v8::String::Value unicodeString(runtime->isolate,
-            (Handle::FromLong(referenceHandle)->GetLocal<v8::Value>()->ToString(context)).ToLocalChecked());
+        v8::TryCatch tryCatch(runtime->isolate);
+        v8::Local<v8::String> string;
+        if (!Handle::FromLong(referenceHandle)->GetLocal<v8::Value>()->ToString(context).ToLocal(&string))
+        {
+            runtime->throwExecutionException(env, context, &tryCatch);
+            return nullptr;
+        }
+        v8::String::Value unicodeString(runtime->isolate, string);
         return env->NewString(*unicodeString, unicodeString.length());
     }
 
@@ -236,12 +684,7 @@ extern "C"
         if (data == nullptr) {
             return nullptr;
         }
-        auto* result = data->externalFromCache(env);
-
-        if (env->ExceptionCheck() == JNI_TRUE) {
-            return nullptr;
-        }
-        return result;
+        return data->getExternal(env);
     }
 
     JNIEXPORT void JNICALL
@@ -266,6 +709,12 @@ extern "C"
         handle->SetFinalizer<ExternalData>(externalData,
             [](const v8::WeakCallbackInfo<ExternalData>& data) {
                 ExternalData* externalData = data.GetParameter();
+                if (externalData->isDetached())
+                {
+                    // The runtime has been closed, while the isolate it shared has not
+                    delete externalData;
+                    return;
+                }
                 JNIEnv* env;
                 auto attachedThread = Runtime::environment->getCurrentThreadEnv(&env, JNI_VERSION);
                 auto* runtime = externalData->runtime;
@@ -290,7 +739,7 @@ extern "C"
 
     JNIEXPORT auto JNICALL
     JPF(getObjectProperty)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle,
-        jstring property, jobject typeGetter, jobject equalityChecker) -> jobject
+        jstring property) -> jobject
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
         newLocalContext(runtime, context)
@@ -312,7 +761,7 @@ extern "C"
             return nullptr;
         }
 
-        return runtime->NewReference(env, context, maybePropertyValue.ToLocalChecked(), typeGetter, equalityChecker);
+        return runtime->NewReference(env, context, maybePropertyValue.ToLocalChecked());
     }
 
     JNIEXPORT void JNICALL
@@ -396,7 +845,7 @@ extern "C"
 
     JNIEXPORT auto JNICALL
     JPF(invokeFunction)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong functionHandle, jlong receiverHandle,
-        jlongArray argHandles, jobject typeGetter, jobject equalityChecker) -> jobject
+        jlongArray argHandles) -> jobject
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
         newLocalContext(runtime, context)
@@ -430,12 +879,11 @@ extern "C"
             return nullptr;
         }
 
-        return runtime->NewReference(env, context, maybeValue.ToLocalChecked(), typeGetter, equalityChecker);
+        return runtime->NewReference(env, context, maybeValue.ToLocalChecked());
     }
 
     JNIEXPORT auto JNICALL
-    JPF(invokeConstructor)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong functionHandle, jlongArray argHandles,
-        jobject typeGetter, jobject equalityChecker) -> jobject
+    JPF(invokeConstructor)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong functionHandle, jlongArray argHandles) -> jobject
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
         newLocalContext(runtime, context)
@@ -468,12 +916,11 @@ extern "C"
             return nullptr;
         }
 
-        return runtime->NewReference(env, context, maybeValue.ToLocalChecked(), typeGetter, equalityChecker);
+        return runtime->NewReference(env, context, maybeValue.ToLocalChecked());
     }
 
     JNIEXPORT void JNICALL
-    JPF(setFunctionHandler)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle, jobject handler,
-        jobject typeGetter, jobject equalityChecker)
+    JPF(setFunctionHandler)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle, jobject handler)
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
         newLocalContext(runtime, context)
@@ -487,7 +934,7 @@ extern "C"
         }
 
         auto* callbackData = new FunctionCallbackData(runtime, handle);
-        callbackData->storeInCache(env, handler, typeGetter, equalityChecker);
+        callbackData->storeInCache(env, handler);
         v8::Local<v8::External> additionalData = v8::External::New(runtime->isolate, callbackData);
 
         v8::Local<v8::FunctionTemplate> functionTemplate = v8::FunctionTemplate::New(runtime->isolate,
@@ -500,36 +947,13 @@ extern "C"
                 auto attachedThread = Runtime::environment->getCurrentThreadEnv(&env, JNI_VERSION);
 
                 Runtime* runtime = callbackData->runtime;
-                jobject callback = callbackData->callbackFromCache(env);
-                if (env->ExceptionCheck() == JNI_TRUE) {
-                    jthrowable exception = env->ExceptionOccurred();
-                    env->ExceptionClear();
-                    runtime->throwJNIExceptionInJS(env, exception);
-                    args.GetReturnValue().SetUndefined();
-                    if (attachedThread == 1)
-                    {
-                        Runtime::environment->releaseCurrentThreadEnv();
-                    }
-                    return;
-                }
-                jobject typeGetter = callbackData->typeGetterFromCache(env);
-                if (env->ExceptionCheck() == JNI_TRUE) {
-                    jthrowable exception = env->ExceptionOccurred();
-                    env->ExceptionClear();
-                    runtime->throwJNIExceptionInJS(env, exception);
-                    args.GetReturnValue().SetUndefined();
-                    if (attachedThread == 1)
-                    {
-                        Runtime::environment->releaseCurrentThreadEnv();
-                    }
-                    return;
-                }
-                jobject equalityChecker = callbackData->equalityCheckerFromCache(env);
-                if (env->ExceptionCheck() == JNI_TRUE) {
-                    jthrowable exception = env->ExceptionOccurred();
-                    env->ExceptionClear();
-                    runtime->throwJNIExceptionInJS(env, exception);
-                    args.GetReturnValue().SetUndefined();
+                jobject callback = callbackData->getCallback(env);
+                if (callback == nullptr)
+                {
+                    // The runtime owning the function handler has been closed
+                    v8::HandleScope handleScope(args.GetIsolate());
+                    args.GetIsolate()->ThrowException(v8::Exception::Error(
+                        v8::String::NewFromUtf8Literal(args.GetIsolate(), "The function handler has been released.")));
                     if (attachedThread == 1)
                     {
                         Runtime::environment->releaseCurrentThreadEnv();
@@ -537,22 +961,27 @@ extern "C"
                     return;
                 }
 
+                // The isolate is already locked and entered by whoever is running JavaScript code
+                v8::HandleScope handleScope(args.GetIsolate());
+                v8::Local<v8::Context> context = args.GetIsolate()->GetCurrentContext();
+
                 jsize argCount = args.Length();
-                newLocalContext(runtime, context)
                 jobjectArray varArguments = Runtime::environment->NewReferenceArray(env, argCount);
                 for (int i = 0; i < argCount; ++i)
                 {
-                    jobject item = runtime->NewReference(env, context, args[i], typeGetter, equalityChecker);
+                    jobject item = runtime->NewReference(env, context, args[i]);
                     env->SetObjectArrayElement(varArguments, i, item);
                     env->DeleteLocalRef(item);
                 }
-                env->DeleteLocalRef(typeGetter);
-                env->DeleteLocalRef(equalityChecker);
 
                 jvalue arguments[1];
                 arguments[0].l = varArguments;
 
-                jobject result = Runtime::environment->applyFunctionCallback(env, callback, arguments);
+                jobject result;
+                {
+                    CallbackUnlocker unlocker(args.GetIsolate());
+                    result = Runtime::environment->applyFunctionCallback(env, callback, arguments);
+                }
                 env->DeleteLocalRef(callback);
                 env->DeleteLocalRef(varArguments);
                 if (env->ExceptionCheck() == JNI_TRUE) {
@@ -582,6 +1011,12 @@ extern "C"
         handle->SetFinalizer<FunctionCallbackData>(callbackData,
             [](const v8::WeakCallbackInfo<FunctionCallbackData>& data) {
                 FunctionCallbackData* callbackData = data.GetParameter();
+                if (callbackData->isDetached())
+                {
+                    // The runtime has been closed, while the isolate it shared has not
+                    delete callbackData;
+                    return;
+                }
                 JNIEnv* env;
                 auto attachedThread = Runtime::environment->getCurrentThreadEnv(&env, JNI_VERSION);
                 auto* runtime = callbackData->runtime;
@@ -615,15 +1050,293 @@ extern "C"
     }
 
     JNIEXPORT auto JNICALL
-    JPF(getElementByPosition)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle, jint position,
-        jobject typeGetter, jobject equalityChecker) -> jobject
+    JPF(getElementByPosition)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle, jint position) -> jobject
     {
         Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
         newLocalContext(runtime, context)
         v8::Local<v8::Array> array = Handle::FromLong(referenceHandle)->GetLocal<v8::Array>();
         v8::Local<v8::Value> element = array->Get(context, position).ToLocalChecked();
 
-        return runtime->NewReference(env, context, element, typeGetter, equalityChecker);
+        return runtime->NewReference(env, context, element);
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(getArrayAsDoubles)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle) -> jdoubleArray
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::Local<v8::Array> array = Handle::FromLong(referenceHandle)->GetLocal<v8::Array>();
+
+        std::vector<jdouble> values(array->Length());
+        bool read = forEachElement(env, runtime, context, array, 0, array->Length(),
+            [&](uint32_t i, v8::Local<v8::Value> element) { return element->NumberValue(context).To(&values[i]); });
+        if (!read) { return nullptr; }
+
+        auto length = static_cast<jsize>(values.size());
+        jdoubleArray result = env->NewDoubleArray(length);
+        env->SetDoubleArrayRegion(result, 0, length, values.data());
+        return result;
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(getArrayAsInts)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle) -> jintArray
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::Local<v8::Array> array = Handle::FromLong(referenceHandle)->GetLocal<v8::Array>();
+
+        std::vector<jint> values(array->Length());
+        bool read = forEachElement(env, runtime, context, array, 0, array->Length(),
+            [&](uint32_t i, v8::Local<v8::Value> element) { return element->Int32Value(context).To(&values[i]); });
+        if (!read) { return nullptr; }
+
+        auto length = static_cast<jsize>(values.size());
+        jintArray result = env->NewIntArray(length);
+        env->SetIntArrayRegion(result, 0, length, values.data());
+        return result;
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(getArrayAsLongs)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle) -> jlongArray
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::Local<v8::Array> array = Handle::FromLong(referenceHandle)->GetLocal<v8::Array>();
+
+        std::vector<jlong> values(array->Length());
+        bool read = forEachElement(env, runtime, context, array, 0, array->Length(),
+            [&](uint32_t i, v8::Local<v8::Value> element)
+            {
+                if (element->IsBigInt())
+                {
+                    // Wraps around like BigInt.asIntN(64, element)
+                    values[i] = element.As<v8::BigInt>()->Int64Value();
+                    return true;
+                }
+                int64_t value;
+                if (!element->IntegerValue(context).To(&value)) { return false; }
+                values[i] = value;
+                return true;
+            });
+        if (!read) { return nullptr; }
+
+        auto length = static_cast<jsize>(values.size());
+        jlongArray result = env->NewLongArray(length);
+        env->SetLongArrayRegion(result, 0, length, values.data());
+        return result;
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(getArrayAsStrings)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle) -> jobjectArray
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::Local<v8::Array> array = Handle::FromLong(referenceHandle)->GetLocal<v8::Array>();
+
+        jobjectArray result = Runtime::environment->NewStringArray(env, static_cast<jsize>(array->Length()));
+        bool read = forEachElement(env, runtime, context, array, 0, array->Length(),
+            [&](uint32_t i, v8::Local<v8::Value> element)
+            {
+                v8::Local<v8::String> string;
+                if (!element->ToString(context).ToLocal(&string)) { return false; }
+                v8::String::Value unicodeString(runtime->isolate, string);
+                jstring item = env->NewString(*unicodeString, unicodeString.length());
+                env->SetObjectArrayElement(result, static_cast<jsize>(i), item);
+                env->DeleteLocalRef(item);
+                return true;
+            });
+        return read ? result : nullptr;
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(getArrayElements)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle, jint from,
+        jint to) -> jobjectArray
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::Local<v8::Array> array = Handle::FromLong(referenceHandle)->GetLocal<v8::Array>();
+
+        // Positions are validated by the caller; elements past the end of the array are not returned
+        auto start = static_cast<uint32_t>(from);
+        uint32_t end = std::min(static_cast<uint32_t>(to), array->Length());
+        end = std::max(start, end);
+
+        jobjectArray result = Runtime::environment->NewReferenceArray(env, static_cast<jsize>(end - start));
+        bool read = forEachElement(env, runtime, context, array, start, end,
+            [&](uint32_t i, v8::Local<v8::Value> element)
+            {
+                jobject item = runtime->NewReference(env, context, element);
+                if (item == nullptr) { return false; }
+                env->SetObjectArrayElement(result, static_cast<jsize>(i), item);
+                env->DeleteLocalRef(item);
+                return true;
+            });
+        return read ? result : nullptr;
+    }
+
+    // The following functions build arrays from all their elements at once, so that the backing store is allocated
+    // with its final size
+
+    JNIEXPORT auto JNICALL
+    JPF(newArrayFromDoubles)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jdoubleArray values) -> jobject
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        jsize length = env->GetArrayLength(values);
+        std::vector<jdouble> numbers(length);
+        env->GetDoubleArrayRegion(values, 0, length, numbers.data());
+        std::vector<v8::Local<v8::Value>> elements(length);
+        for (jsize i = 0; i < length; i++)
+        {
+            elements[i] = v8::Number::New(runtime->isolate, numbers[i]);
+        }
+
+        return runtime->NewReference(env, context, v8::Array::New(runtime->isolate, elements.data(), elements.size()));
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(newArrayFromStrings)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jobjectArray values) -> jobject
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        jsize length = env->GetArrayLength(values);
+        std::vector<v8::Local<v8::Value>> elements(length);
+        for (jsize i = 0; i < length; i++)
+        {
+            auto string = static_cast<jstring>(env->GetObjectArrayElement(values, i));
+            if (string == nullptr)
+            {
+                elements[i] = v8::Null(runtime->isolate);
+                continue;
+            }
+            elements[i] = runtime->createV8String(env, string);
+            env->DeleteLocalRef(string);
+        }
+
+        return runtime->NewReference(env, context, v8::Array::New(runtime->isolate, elements.data(), elements.size()));
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(newArrayFromReferences)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlongArray valueHandles) -> jobject
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        jsize length = env->GetArrayLength(valueHandles);
+        std::vector<v8::Local<v8::Value>> elements(length);
+        jlong* handles = env->GetLongArrayElements(valueHandles, nullptr);
+        for (jsize i = 0; i < length; i++)
+        {
+            elements[i] = Handle::FromLong(handles[i])->GetLocal<v8::Value>();
+        }
+        env->ReleaseLongArrayElements(valueHandles, handles, JNI_ABORT);
+
+        return runtime->NewReference(env, context, v8::Array::New(runtime->isolate, elements.data(), elements.size()));
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(setArrayRange)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle, jint offset,
+        jdoubleArray values)
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::Local<v8::Array> array = Handle::FromLong(referenceHandle)->GetLocal<v8::Array>();
+
+        jsize length = env->GetArrayLength(values);
+        std::vector<jdouble> numbers(length);
+        env->GetDoubleArrayRegion(values, 0, length, numbers.data());
+
+        // Storing an element can run a setter defined on the prototype, which can throw
+        v8::TryCatch tryCatch(runtime->isolate);
+        for (jsize i = 0; i < length; i++)
+        {
+            v8::HandleScope elementScope(runtime->isolate);
+            auto position = static_cast<uint32_t>(offset) + static_cast<uint32_t>(i);
+            if (array->Set(context, position, v8::Number::New(runtime->isolate, numbers[i])).IsNothing())
+            {
+                runtime->throwExecutionException(env, context, &tryCatch);
+                return;
+            }
+        }
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(newArrayBuffer)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jobject buffer, jint offset,
+        jint length) -> jobject
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+
+        // The caller checks the buffer is direct: its memory is used in place and kept alive by a global reference
+        auto* data = static_cast<char*>(env->GetDirectBufferAddress(buffer));
+        std::unique_ptr<v8::BackingStore> backingStore = v8::ArrayBuffer::NewBackingStore(data + offset,
+            static_cast<size_t>(length), releaseDirectBuffer, env->NewGlobalRef(buffer));
+        return runtime->NewReference(env, context, v8::ArrayBuffer::New(runtime->isolate, std::move(backingStore)));
+    }
+
+    JNIEXPORT auto JNICALL
+    JPF(getArrayBufferContents)(JNIEnv* env, jobject thiz, jlong runtimeHandle, jlong referenceHandle,
+        jlongArray backingStoreHandle) -> jobject
+    {
+        Runtime* runtime = Runtime::safeCast(env, runtimeHandle);
+        newLocalContext(runtime, context)
+        v8::Local<v8::Value> value = Handle::FromLong(referenceHandle)->GetLocal<v8::Value>();
+
+        v8::Local<v8::ArrayBuffer> buffer;
+        size_t offset = 0;
+        size_t length;
+        if (value->IsArrayBuffer())
+        {
+            buffer = value.As<v8::ArrayBuffer>();
+            length = buffer->ByteLength();
+        }
+        else if (value->IsArrayBufferView())
+        {
+            // Typed arrays and data views expose their range of the underlying buffer
+            v8::Local<v8::ArrayBufferView> view = value.As<v8::ArrayBufferView>();
+            buffer = view->Buffer();
+            offset = view->ByteOffset();
+            length = view->ByteLength();
+        }
+        else
+        {
+            return nullptr;
+        }
+
+        // Java buffers are indexed by int
+        if (length > static_cast<size_t>(INT32_MAX)) { return nullptr; }
+        // The Java buffer owns a share of the backing store, so the memory outlives the ArrayBuffer until it is
+        // released by releaseBackingStore
+        auto* backingStore = new std::shared_ptr<v8::BackingStore>(buffer->GetBackingStore());
+        auto* data = static_cast<char*>((*backingStore)->Data());
+        if (data == nullptr)
+        {
+            // Detached and empty buffers have no memory: direct buffers cannot be created without an address
+            delete backingStore;
+            jclass byteBufferClass = env->FindClass("java/nio/ByteBuffer");
+            jmethodID allocate = env->GetStaticMethodID(byteBufferClass, "allocate", "(I)Ljava/nio/ByteBuffer;");
+            jobject empty = env->CallStaticObjectMethod(byteBufferClass, allocate, 0);
+            env->DeleteLocalRef(byteBufferClass);
+            return empty;
+        }
+        jobject contents = env->NewDirectByteBuffer(data + offset, static_cast<jlong>(length));
+        if (contents == nullptr)
+        {
+            delete backingStore;
+            return nullptr;
+        }
+        auto handle = reinterpret_cast<jlong>(backingStore);
+        env->SetLongArrayRegion(backingStoreHandle, 0, 1, &handle);
+        return contents;
+    }
+
+    JNIEXPORT void JNICALL
+    JPF(releaseBackingStore)(JNIEnv* env, jobject thiz, jlong backingStoreHandle)
+    {
+        // Backing stores are thread safe: the isolate does not need to be locked
+        delete reinterpret_cast<std::shared_ptr<v8::BackingStore>*>(backingStoreHandle);
     }
 
     JNIEXPORT void JNICALL
@@ -15,11 +15,8 @@
 #define INIT_ENUM_VALUE(variable, class, name, type)            variable(env->NewGlobalRef(env->GetStaticObjectField(class, env->GetStaticFieldID(class, name, type))))
 
 Environment::Environment(JavaVM* jvm, JNIEnv* env)
-: INIT_CLASS(runtimeClass, "jjbridge/engine/v8/runtime/Runtime")
-, INIT_METHOD(runtimeTrackReference, runtimeClass, "track", "(Ljjbridge/engine/v8/runtime/Reference;)V")
-
-, INIT_CLASS(referenceClass, "jjbridge/engine/v8/runtime/Reference")
-, INIT_METHOD(referenceCtor, referenceClass, "<init>", "(JLjjbridge/api/value/JSType;Ljjbridge/engine/v8/runtime/ReferenceTypeGetter;Ljjbridge/engine/v8/runtime/EqualityChecker;)V")
+: INIT_CLASS(referenceClass, "jjbridge/engine/v8/runtime/Reference")
+, INIT_METHOD(referenceCtor, referenceClass, "<init>", "(JLjjbridge/api/value/JSType;Ljjbridge/engine/v8/runtime/Runtime;)V")
 , INIT_FIELD(referenceHandleField, referenceClass, "handle", "J")
 
 , INIT_CLASS(nullPointerExceptionClass, "java/lang/NullPointerException")
@@ -33,11 +30,14 @@ Environment::Environment(JavaVM* jvm, JNIEnv* env)
 , INIT_CLASS(functionCallbackClass, "jjbridge/api/value/strategy/FunctionCallback")
 , INIT_METHOD(functionCallbackApply, functionCallbackClass, "apply", "([Ljjbridge/api/runtime/JSReference;)Ljjbridge/api/runtime/JSReference;")
 , INIT_CLASS(jsTypeClass, "jjbridge/api/value/JSType")
+, INIT_CLASS(stringClass, "java/lang/String")
 
 , INIT_CLASS(messageHandlerClass, "jjbridge/engine/v8/inspector/V8MessageHandler")
 
+, INIT_CLASS(fairSchedulerClass, "jjbridge/engine/v8/runtime/FairScheduler")
+, INIT_STATIC_METHOD(fairSchedulerInterrupted, fairSchedulerClass, "interrupted", "()V")
+
 , INIT_METHOD(cacheStore, cacheClass, "store", "(JLjava/lang/Object;)V")
-, INIT_METHOD(cacheGet, cacheClass, "get", "(J)Ljava/lang/Object;")
 , INIT_METHOD(cacheDelete, cacheClass, "delete", "(J)V")
 , INIT_METHOD(cacheClear, cacheClass, "clear", "()V")
 
@@ -74,14 +74,15 @@ void Environment::Release(JNIEnv* env, Environment* environment)
 	v8::V8::Dispose();
 	v8::V8::ShutdownPlatform();
 
-	env->DeleteGlobalRef(environment->runtimeClass);
 	env->DeleteGlobalRef(environment->referenceClass);
 	env->DeleteGlobalRef(environment->cacheClass);
 	env->DeleteGlobalRef(environment->nullPointerExceptionClass);
 	env->DeleteGlobalRef(environment->compilationExceptionClass);
 	env->DeleteGlobalRef(environment->executionExceptionClass);
 	env->DeleteGlobalRef(environment->jsTypeClass);
+	env->DeleteGlobalRef(environment->stringClass);
 	env->DeleteGlobalRef(environment->functionCallbackClass);
+	env->DeleteGlobalRef(environment->fairSchedulerClass);
 	env->DeleteGlobalRef(environment->jsTypeUndefined);
 	env->DeleteGlobalRef(environment->jsTypeNull);
 	env->DeleteGlobalRef(environment->jsTypeBoolean);
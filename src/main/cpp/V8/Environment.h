@@ -14,9 +14,6 @@ private:
 	JavaVM* _jvm;
 	v8::Platform* _platform;
 
-    const jclass runtimeClass;
-    const jmethodID runtimeTrackReference;
-
     const jclass referenceClass;
     const jmethodID referenceCtor;
     const jfieldID referenceHandleField;
@@ -32,12 +29,15 @@ private:
     const jclass functionCallbackClass;
     const jmethodID functionCallbackApply;
     const jclass jsTypeClass;
+    const jclass stringClass;
 
     const jclass messageHandlerClass;
 
+    const jclass fairSchedulerClass;
+    const jmethodID fairSchedulerInterrupted;
+
 public:
     const jmethodID cacheStore;
-    const jmethodID cacheGet;
     const jmethodID cacheDelete;
     const jmethodID cacheClear;
 
@@ -94,9 +94,10 @@ public:
 
 	auto getResultType(JNIEnv* env, v8::Local<v8::Context> context, const v8::Local<v8::Value> &result) const -> jobject;
 
-    inline auto NewReference(JNIEnv* env, jlong objectHandle, jobject type, jobject typeGetter, jobject equalityChecker) const -> jobject
+    // The constructor registers the reference with its runtime, so no further upcall is needed
+    inline auto NewReference(JNIEnv* env, jlong objectHandle, jobject type, jobject runtime) const -> jobject
     {
-        return env->NewObject(referenceClass, referenceCtor, objectHandle, type, typeGetter, equalityChecker);
+        return env->NewObject(referenceClass, referenceCtor, objectHandle, type, runtime);
     }
 
 	inline auto NewReferenceArray(JNIEnv* env, jsize size) const -> jobjectArray
@@ -104,9 +105,14 @@ public:
     	return env->NewObjectArray(size, referenceClass, nullptr);
     }
 
-    inline void trackReference(JNIEnv* env, jobject runtime, jobject reference) const
+	inline auto NewTypeArray(JNIEnv* env, jsize size) const -> jobjectArray
+    {
+    	return env->NewObjectArray(size, jsTypeClass, nullptr);
+    }
+
+	inline auto NewStringArray(JNIEnv* env, jsize size) const -> jobjectArray
     {
-        env->CallVoidMethod(runtime, runtimeTrackReference, reference);
+    	return env->NewObjectArray(size, stringClass, nullptr);
     }
 
 	inline auto applyFunctionCallback(JNIEnv* env, jobject object, const jvalue* args) const -> jobject
@@ -151,6 +157,11 @@ public:
         env->Throw(exception);
 	}
 
+    inline void interruptScheduler(JNIEnv* env) const
+    {
+        env->CallStaticVoidMethod(fairSchedulerClass, fairSchedulerInterrupted);
+    }
+
     inline void sendToInspector(JNIEnv* env, jobject object, const jchar* message, jsize length) const
 	{
 		jstring jmessage = env->NewString(message, length);
@@ -5,10 +5,20 @@
 #include "Runtime.h"
 #include "Handle.h"
 
-class ExternalData
+// The external object is owned by the external cache of the runtime, while the data only holds a weak global
+// reference to it: reading the value needs no upcall.
+class ExternalData : public RuntimeData
 {
 private:
     bool alreadyCleared;
+    jweak external;
+
+    // The data lives as long as the JavaScript value, while the slot of its handle is reused once the reference
+    // holding it is released: keyed by the slot, the entry of a live value could be overwritten by a new one
+    inline auto cacheKey() const -> jlong
+    {
+        return reinterpret_cast<jlong>(this);
+    }
 
 public:
     Runtime* runtime;
@@ -18,7 +28,33 @@ public:
     : runtime(runtime)
     , handle(handle)
     {
+        runtime->bind(this);
         alreadyCleared = false;
+        external = nullptr;
+    }
+
+    ~ExternalData() override
+    {
+        if (runtime != nullptr)
+        {
+            runtime->unbind(this);
+        }
+    }
+
+    // Called when the runtime is closed, which clears its caches
+    void detach(JNIEnv* env) override
+    {
+        if (!alreadyCleared)
+        {
+            env->DeleteWeakGlobalRef(external);
+            alreadyCleared = true;
+        }
+        runtime = nullptr;
+    }
+
+    inline auto isDetached() const -> bool
+    {
+        return runtime == nullptr;
     }
 
     void clearReference(JNIEnv* env)
@@ -27,34 +63,37 @@ public:
         {
             return;
         }
-        runtime->ExternalCacheDelete(env, handle->AsLong());
+        runtime->ExternalCacheDelete(env, cacheKey());
         if (env->ExceptionCheck() == JNI_TRUE) {
             return;
         }
+        env->DeleteWeakGlobalRef(external);
         handle->Reset();
 
         alreadyCleared = true;
     }
 
-    inline void storeInCache(JNIEnv* env, jobject external) const
+    inline void storeInCache(JNIEnv* env, jobject value)
     {
         if (alreadyCleared)
         {
             return;
         }
-        runtime->ExternalCacheStore(env, handle->AsLong(), external);
+        runtime->ExternalCacheStore(env, cacheKey(), value);
         if (env->ExceptionCheck() == JNI_TRUE) {
             return;
         }
+        this->external = env->NewWeakGlobalRef(value);
     }
 
-    inline auto externalFromCache(JNIEnv* env) const -> jobject
+    // Returns a new local reference, which is null if the runtime has cleared its caches or has been closed
+    inline auto getExternal(JNIEnv* env) const -> jobject
     {
         if (alreadyCleared)
         {
-            throw std::runtime_error("ExternalData already cleared!");
+            return nullptr;
         }
-        return runtime->ExternalCacheGet(env, handle->AsLong());
+        return env->NewLocalRef(external);
     }
 };
 
@@ -5,10 +5,21 @@
 #include "Runtime.h"
 #include "Handle.h"
 
-class FunctionCallbackData
+// The Java callback is owned by the function cache of the runtime, which keeps it alive until the function is collected
+// or the runtime is closed. The data only holds a weak global reference to it, so that invoking the function needs no
+// upcall to read the cache.
+class FunctionCallbackData : public RuntimeData
 {
 private:
     bool alreadyCleared;
+    jweak callback;
+
+    // The data lives as long as the JavaScript value, while the slot of its handle is reused once the reference
+    // holding it is released: keyed by the slot, the entry of a live value could be overwritten by a new one
+    inline auto cacheKey() const -> jlong
+    {
+        return reinterpret_cast<jlong>(this);
+    }
 
 public:
     Runtime* runtime;
@@ -18,78 +29,73 @@ public:
     : runtime(runtime)
     , handle(handle)
     {
+        runtime->bind(this);
         alreadyCleared = false;
+        callback = nullptr;
     }
 
-    void clearReference(JNIEnv* env)
+    ~FunctionCallbackData() override
     {
-        if (alreadyCleared)
+        if (runtime != nullptr)
         {
-            return;
+            runtime->unbind(this);
         }
+    }
 
-        runtime->FunctionCacheDelete(env, handle->AsLong());
-        if (env->ExceptionCheck() == JNI_TRUE) {
-            return;
-        }
-        runtime->TypeGetterCacheDelete(env, handle->AsLong());
-        if (env->ExceptionCheck() == JNI_TRUE) {
-            return;
-        }
-        runtime->EqualityCheckerCacheDelete(env, handle->AsLong());
-        if (env->ExceptionCheck() == JNI_TRUE) {
-            return;
+    // Called when the runtime is closed, which clears its caches
+    void detach(JNIEnv* env) override
+    {
+        if (!alreadyCleared)
+        {
+            env->DeleteWeakGlobalRef(callback);
+            alreadyCleared = true;
         }
-        handle->Reset();
+        runtime = nullptr;
+    }
 
-        alreadyCleared = true;
+    inline auto isDetached() const -> bool
+    {
+        return runtime == nullptr;
     }
 
-    inline void storeInCache(JNIEnv* env, jobject handler, jobject typeGetter, jobject equalityChecker) const
+    void clearReference(JNIEnv* env)
     {
         if (alreadyCleared)
         {
             return;
         }
-        runtime->FunctionCacheStore(env, handle->AsLong(), handler);
-        if (env->ExceptionCheck() == JNI_TRUE) {
-            return;
-        }
-        runtime->TypeGetterCacheStore(env, handle->AsLong(), typeGetter);
-        if (env->ExceptionCheck() == JNI_TRUE) {
-            return;
-        }
-        runtime->EqualityCheckerCacheStore(env, handle->AsLong(), equalityChecker);
+
+        runtime->FunctionCacheDelete(env, cacheKey());
         if (env->ExceptionCheck() == JNI_TRUE) {
             return;
         }
-    }
+        env->DeleteWeakGlobalRef(callback);
+        handle->Reset();
 
-    inline auto callbackFromCache(JNIEnv* env) const -> jobject
-    {
-        if (alreadyCleared)
-        {
-            throw std::runtime_error("FunctionCallbackData already cleared!");
-        }
-        return runtime->FunctionCacheGet(env, handle->AsLong());
+        alreadyCleared = true;
     }
 
-    inline auto typeGetterFromCache(JNIEnv* env) const -> jobject
+    inline void storeInCache(JNIEnv* env, jobject handler)
     {
         if (alreadyCleared)
         {
-            throw std::runtime_error("FunctionCallbackData already cleared!");
+            return;
+        }
+        runtime->FunctionCacheStore(env, cacheKey(), handler);
+        if (env->ExceptionCheck() == JNI_TRUE) {
+            return;
         }
-        return runtime->TypeGetterCacheGet(env, handle->AsLong());
+        this->callback = env->NewWeakGlobalRef(handler);
     }
 
-    inline auto equalityCheckerFromCache(JNIEnv* env) const -> jobject
+    // Returns a new local reference, which is null if the runtime has cleared its caches or has been closed
+    inline auto getCallback(JNIEnv* env) const -> jobject
     {
         if (alreadyCleared)
         {
-            throw std::runtime_error("FunctionCallbackData already cleared!");
+            return nullptr;
         }
-        return runtime->EqualityCheckerCacheGet(env, handle->AsLong());
+        return env->NewLocalRef(callback);
     }
 };
 
@@ -8,12 +8,13 @@ class Handle
 {
 private:
     v8::Isolate* isolate;
-    v8::Persistent<v8::Value, v8::CopyablePersistentTraits<v8::Value>>* persistent;
+    // Stored inline: handles are allocated by a HandleAllocator, which destroys them (thus resetting the persistent)
+    // when they are released.
+    v8::Persistent<v8::Value, v8::CopyablePersistentTraits<v8::Value>> persistent;
 
 public:
-    Handle(v8::Isolate* isolate) : isolate(isolate)
+    explicit Handle(v8::Isolate* isolate) : isolate(isolate)
     {
-        persistent = new v8::Persistent<v8::Value, v8::CopyablePersistentTraits<v8::Value>>();
     }
 
     Handle(v8::Isolate* isolate, const v8::Local<v8::Value> &value) : Handle(isolate)
@@ -23,41 +24,35 @@ public:
 
     inline void Set(const v8::Local<v8::Value> &value)
     {
-        persistent->Reset(isolate, value);
+        persistent.Reset(isolate, value);
     }
 
     inline void Reset()
     {
-        persistent->Reset();
+        persistent.Reset();
     }
 
     template<typename V, typename std::enable_if<std::is_base_of<v8::Value, V>::value>::type* = nullptr>
     inline auto GetLocal() -> v8::Local<V>
     {
-        return v8::Local<V>::Cast(v8::Local<v8::Value>::New(isolate, *persistent));
+        return v8::Local<V>::Cast(v8::Local<v8::Value>::New(isolate, persistent));
     }
 
     inline auto GetLocal() -> v8::Local<v8::Value>
     {
-        return v8::Local<v8::Value>::New(isolate, *persistent);
+        return v8::Local<v8::Value>::New(isolate, persistent);
     }
 
     template<typename P>
     inline void SetFinalizer(P* parameter, typename v8::WeakCallbackInfo<P>::Callback callback)
     {
-        persistent->SetWeak(parameter, callback, v8::WeakCallbackType::kFinalizer);
+        persistent.SetWeak(parameter, callback, v8::WeakCallbackType::kFinalizer);
     }
 
     template<typename P>
     inline auto GetFinalizerParameter() -> P*
     {
-        return persistent->ClearWeak<P>();
-    }
-
-    inline static void Release(Handle* handle)
-    {
-        delete handle->persistent;
-        delete handle;
+        return persistent.ClearWeak<P>();
     }
 
     inline auto AsLong() -> jlong
@@ -72,8 +67,11 @@ public:
 
     inline auto operator == (const Handle &that) -> bool
     {
-        return this->persistent == that.persistent;
+        return this == &that;
     }
+
+    Handle(const Handle&) = delete;
+    void operator=(const Handle&) = delete;
 };
 
 #endif
\ No newline at end of file
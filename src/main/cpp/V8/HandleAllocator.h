@@ -0,0 +1,111 @@
+#ifndef HANDLE_ALLOCATOR_H_
+#define HANDLE_ALLOCATOR_H_
+
+#include <jni.h>
+#include <cstddef>
+#include <new>
+#include <utility>
+#include <vector>
+
+#include "Handle.h"
+
+// Allocates the handles of an isolate from fixed-size chunks, reusing released slots through a free list, so that
+// creating and releasing a reference costs no heap allocation once the isolate has warmed up.
+// The allocator is not synchronized: it must only be used while holding the lock of its isolate.
+class HandleAllocator
+{
+private:
+    static const size_t CHUNK_SIZE = 256;
+
+    union Slot
+    {
+        Slot* next;
+        alignas(Handle) unsigned char storage[sizeof(Handle)];
+    };
+
+    std::vector<Slot*> chunks;
+    Slot* freeList;
+    jlong allocations;
+    jlong releases;
+
+    void Grow()
+    {
+        auto* chunk = new Slot[CHUNK_SIZE];
+        chunks.push_back(chunk);
+        // Linked backwards so that slots are handed out in address order
+        for (size_t i = CHUNK_SIZE; i > 0; i--)
+        {
+            chunk[i - 1].next = freeList;
+            freeList = &chunk[i - 1];
+        }
+    }
+
+public:
+    HandleAllocator()
+    : freeList(nullptr)
+    , allocations(0)
+    , releases(0)
+    {
+    }
+
+    // Handles still alive are not destroyed: they belong to an isolate which is being disposed.
+    ~HandleAllocator()
+    {
+        for (Slot* chunk : chunks)
+        {
+            delete[] chunk;
+        }
+    }
+
+    HandleAllocator(const HandleAllocator&) = delete;
+    void operator=(const HandleAllocator&) = delete;
+
+    template<typename... Args>
+    inline auto New(Args&&... args) -> Handle*
+    {
+        if (freeList == nullptr)
+        {
+            Grow();
+        }
+        Slot* slot = freeList;
+        freeList = slot->next;
+        allocations++;
+        return new (slot->storage) Handle(std::forward<Args>(args)...);
+    }
+
+    inline void Delete(Handle* handle)
+    {
+        handle->~Handle();
+        auto* slot = reinterpret_cast<Slot*>(handle);
+        slot->next = freeList;
+        freeList = slot;
+        releases++;
+    }
+
+    inline auto getAllocations() const -> jlong
+    {
+        return allocations;
+    }
+
+    inline auto getReleases() const -> jlong
+    {
+        return releases;
+    }
+
+    inline auto getLiveHandles() const -> jlong
+    {
+        return allocations - releases;
+    }
+
+    inline auto getCapacity() const -> jlong
+    {
+        return static_cast<jlong>(chunks.size() * CHUNK_SIZE);
+    }
+
+    inline auto getChunks() const -> jlong
+    {
+        return static_cast<jlong>(chunks.size());
+    }
+};
+
+#endif
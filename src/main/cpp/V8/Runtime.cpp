@@ -1,11 +1,15 @@
 #include "Runtime.h"
 
+#include <atomic>
+#include <memory>
 #include <string>
 #include "libplatform/libplatform.h"
 #include "v8.h"
 #include "Environment.h"
 #include "Handle.h"
 
+thread_local bool CallbackUnlocker::unlocked = false;
+
 auto getMessage(v8::Local<v8::Context> context, v8::TryCatch* tryCatch) -> std::u16string
 {
     v8::MaybeLocal<v8::Value> stack = tryCatch->StackTrace(context);
@@ -18,15 +22,18 @@ auto getMessage(v8::Local<v8::Context> context, v8::TryCatch* tryCatch) -> std::
     return str;
 }
 
-Runtime::Runtime(JNIEnv* env, jobject runtime, jobject functionCache, jobject typeGetterCache, jobject equalityCheckerCache, jobject externalCache)
+Runtime::Runtime(JNIEnv* env, jobject runtime, jobject functionCache, jobject externalCache)
 : runtime(env->NewGlobalRef(runtime))
 , functionCache(env->NewGlobalRef(functionCache))
-, typeGetterCache(env->NewGlobalRef(typeGetterCache))
-, equalityCheckerCache(env->NewGlobalRef(equalityCheckerCache))
 , externalCache(env->NewGlobalRef(externalCache))
+, ownsIsolate(true)
+, canonicalReferences()
+, handles(new HandleAllocator())
 {
 	v8::Isolate::CreateParams create_params;
-	create_params.array_buffer_allocator = v8::ArrayBuffer::Allocator::NewDefaultAllocator();
+	// Shared with the backing stores, which can outlive the isolate when Java holds their contents
+	create_params.array_buffer_allocator_shared =
+	    std::shared_ptr<v8::ArrayBuffer::Allocator>(v8::ArrayBuffer::Allocator::NewDefaultAllocator());
 	isolate = v8::Isolate::New(create_params);
 
     v8::Locker locker(isolate);
@@ -37,6 +44,33 @@ Runtime::Runtime(JNIEnv* env, jobject runtime, jobject functionCache, jobject ty
 	context.Reset(isolate, ctx);
 }
 
+Runtime::Runtime(JNIEnv* env, const Runtime* parent, jobject runtime, jobject functionCache, jobject externalCache)
+: runtime(env->NewGlobalRef(runtime))
+, functionCache(env->NewGlobalRef(functionCache))
+, externalCache(env->NewGlobalRef(externalCache))
+, ownsIsolate(false)
+, canonicalReferences()
+, isolate(parent->isolate)
+, handles(parent->handles)
+{
+    v8::Locker locker(isolate);
+	v8::Isolate::Scope isolate_scope(isolate);
+	v8::HandleScope handle_scope(isolate);
+
+	v8::Local<v8::Context> ctx = v8::Context::New(isolate);
+	context.Reset(isolate, ctx);
+}
+
+void Runtime::setCanonicalReferences(JNIEnv* env, jobjectArray references)
+{
+	for (int i = 0; i < CANONICAL_COUNT; i++)
+	{
+	    jobject reference = env->GetObjectArrayElement(references, i);
+	    canonicalReferences[i] = env->NewGlobalRef(reference);
+	    env->DeleteLocalRef(reference);
+	}
+}
+
 auto Runtime::createV8String(JNIEnv* env, jstring &string) const -> v8::Local<v8::String>
 {
 	const uint16_t* unicodeString = env->GetStringChars(string, nullptr);
@@ -54,7 +88,7 @@ auto Runtime::compileScript(JNIEnv* env, v8::Local<v8::Context> context, v8::Loc
 	v8::Local<v8::Integer> originRow = v8::Integer::New(isolate, 0);
     v8::Local<v8::Integer> originCol = v8::Integer::New(isolate, 0);
     v8::Local<v8::Boolean> cors = v8::Boolean::New(isolate, true);
-    static int ScriptIdCounter = 0;
+    static std::atomic<int> ScriptIdCounter(0);
     v8::Local<v8::Integer> scriptId = v8::Integer::New(isolate, ScriptIdCounter++);
     v8::Local<v8::String> originUrl = v8::String::Concat(isolate, v8::String::NewFromUtf8Literal(isolate, "file://"), fileName);
 
@@ -101,6 +135,16 @@ auto Runtime::runScript(JNIEnv* env, v8::Local<v8::Context> context, v8::Local<v
 	return true;
 }
 
+auto Runtime::evaluateScript(JNIEnv* env, v8::Local<v8::Context> context, jstring fileName, jstring sourceCode,
+    v8::Local<v8::Value> &result) -> bool
+{
+	v8::Local<v8::String> name = createV8String(env, fileName);
+	v8::Local<v8::String> source = createV8String(env, sourceCode);
+
+	v8::Local<v8::Script> script;
+	return compileScript(env, context, name, source, script) && runScript(env, context, script, result);
+}
+
 void Runtime::throwJNIExceptionInJS(JNIEnv* env, jthrowable throwable) const
 {
     jclass clazz = env->GetObjectClass(throwable);
@@ -123,6 +167,20 @@ void Runtime::throwJNIExceptionInJS(JNIEnv* env, jthrowable throwable) const
 
 void Runtime::throwExecutionException(JNIEnv* env, v8::Local<v8::Context> context, v8::TryCatch* tryCatch) const
 {
+    if (tryCatch->HasTerminated())
+    {
+        // Cancelled while the isolate is still locked by this call, unless outer JavaScript frames are left to unwind:
+        // the next execution, possibly by another thread, must not be terminated in turn
+        if (!isolate->IsExecutionTerminating())
+        {
+            isolate->CancelTerminateExecution();
+        }
+        // A terminated execution has neither an exception object nor a message
+        std::u16string message = u"Execution terminated.";
+        environment->throwExecutionException(env, (jchar*) message.c_str(), message.length());
+        return;
+    }
+
     std::u16string message = getMessage(context, tryCatch);
     v8::MaybeLocal<v8::Value> inner = v8::Local<v8::Object>::Cast(tryCatch->Exception())
         ->Get(context, v8::String::NewFromUtf8Literal(isolate, "_nativeException"));
@@ -161,7 +219,25 @@ auto Runtime::safeRelease(JNIEnv* env, jlong runtimeHandle) -> bool
 	}
 
 	auto* runtime = reinterpret_cast<Runtime*>(runtimeHandle);
-	runtime->isolate->LowMemoryNotification(); //Forces garbage collection before dispose
+	{
+	    v8::Locker locker(runtime->isolate);
+	    v8::Isolate::Scope isolateScope(runtime->isolate);
+	    if (runtime->ownsIsolate)
+	    {
+	        runtime->isolate->LowMemoryNotification(); //Forces garbage collection before dispose
+	    }
+	    // Data still bound was not collected: when the isolate is shared, its values can still be called or collected
+	    for (RuntimeData* data : runtime->boundData)
+	    {
+	        data->detach(env);
+	    }
+	    runtime->boundData.clear();
+	    runtime->context.Reset();
+	    if (!runtime->ownsIsolate)
+	    {
+	        runtime->isolate->ContextDisposedNotification();
+	    }
+	}
 	env->DeleteGlobalRef(runtime->runtime);
 
 	env->CallVoidMethod(runtime->functionCache, environment->cacheClear);
@@ -169,19 +245,24 @@ auto Runtime::safeRelease(JNIEnv* env, jlong runtimeHandle) -> bool
         env->ExceptionClear();
     }
 	env->DeleteGlobalRef(runtime->functionCache);
-	env->CallVoidMethod(runtime->typeGetterCache, environment->cacheClear);
-	if (env->ExceptionCheck() == JNI_TRUE) {
-        env->ExceptionClear();
-    }
-	env->DeleteGlobalRef(runtime->typeGetterCache);
 	env->CallVoidMethod(runtime->externalCache, environment->cacheClear);
 	if (env->ExceptionCheck() == JNI_TRUE) {
         env->ExceptionClear();
     }
 	env->DeleteGlobalRef(runtime->externalCache);
+	for (jobject reference : runtime->canonicalReferences)
+	{
+	    if (reference != nullptr)
+	    {
+	        env->DeleteGlobalRef(reference);
+	    }
+	}
 
-	runtime->context.Reset();
-	runtime->isolate->Dispose();
+	if (runtime->ownsIsolate)
+	{
+	    runtime->isolate->Dispose();
+	    delete runtime->handles;
+	}
 	delete runtime;
 
 	return true;
@@ -3,46 +3,146 @@
 
 #include <jni.h>
 #include <string>
+#include <unordered_set>
 #include "libplatform/libplatform.h"
 #include "v8.h"
 
 #include "Environment.h"
 #include "Handle.h"
+#include "HandleAllocator.h"
 
-#define newLocalContext(runtime, contextVar) v8::Isolate::Scope isolateScope((runtime)->isolate);\
-    v8::Locker locker((runtime)->isolate);\
+// The isolate's Locker is the only lock needed to access a runtime: runtimes with different isolates can be used
+// concurrently from different threads, while contexts sharing an isolate are serialized by its lock. The lock must be
+// taken before entering the isolate.
+#define newLocalContext(runtime, contextVar) v8::Locker locker((runtime)->isolate);\
+    v8::Isolate::Scope isolateScope((runtime)->isolate);\
 	v8::HandleScope handle_scope((runtime)->isolate);\
 	v8::Local<v8::Context> (contextVar) = (runtime)->context.Get((runtime)->isolate);\
 	v8::Context::Scope context_scope(contextVar);
 
+// Releases the isolate lock while a Java callback is running, so that other threads can use the same runtime.
+// V8 does not allow nested Unlockers, so only the outermost callback running on a thread actually unlocks.
+// The isolate may have been entered more than once on this thread (e.g. by an event loop holding the lock across a
+// batch of calls), so every entry is exited before unlocking and restored afterwards.
+class CallbackUnlocker
+{
+private:
+    static thread_local bool unlocked;
+    v8::Isolate* isolate;
+    v8::Unlocker* unlocker;
+    int entries;
+
+public:
+    explicit CallbackUnlocker(v8::Isolate* isolate)
+    : isolate(isolate)
+    , unlocker(nullptr)
+    , entries(0)
+    {
+        if (unlocked)
+        {
+            return;
+        }
+        unlocked = true;
+        while (v8::Isolate::GetCurrent() == isolate)
+        {
+            isolate->Exit();
+            entries++;
+        }
+        unlocker = new v8::Unlocker(isolate);
+    }
+
+    ~CallbackUnlocker()
+    {
+        if (unlocker == nullptr)
+        {
+            return;
+        }
+        delete unlocker;
+        for (int i = 0; i < entries; i++)
+        {
+            isolate->Enter();
+        }
+        unlocked = false;
+    }
+
+    CallbackUnlocker(const CallbackUnlocker&) = delete;
+    void operator=(const CallbackUnlocker&) = delete;
+};
+
+// Native data referring to a runtime, such as the data of Java function handlers and externals. Contexts share their
+// isolate, so their values can be called or collected after the context is closed: closing a runtime detaches its data,
+// which from then on must not use the runtime.
+class RuntimeData
+{
+public:
+    virtual ~RuntimeData() = default;
+    virtual void detach(JNIEnv* env) = 0;
+};
+
 class Runtime
 {
+public:
+	static const int CANONICAL_COUNT = 3;
+
 private:
     const jobject runtime;
     const jobject functionCache;
-    const jobject typeGetterCache;
-    const jobject equalityCheckerCache;
     const jobject externalCache;
+    // Contexts created from another runtime share its isolate, which is disposed only by the runtime that created it.
+    const bool ownsIsolate;
+    // Permanent references to undefined, null and the global object, in this order. Values returned to Java which are
+    // one of these are mapped to the same reference, without allocating a handle. Booleans are not mapped, since the
+    // value of a boolean reference can be replaced through the bridge.
+    jobject canonicalReferences[CANONICAL_COUNT];
+    // Guarded by the isolate lock
+    std::unordered_set<RuntimeData*> boundData;
+
+    inline auto getCanonicalReference(const v8::Local<v8::Value>& value) -> jobject
+    {
+        if (canonicalReferences[0] == nullptr)
+        {
+            return nullptr;
+        }
+        if (value->IsUndefined())
+        {
+            return canonicalReferences[0];
+        }
+        if (value->IsNull())
+        {
+            return canonicalReferences[1];
+        }
+        if (value->IsObject() && value == context.Get(isolate)->Global())
+        {
+            return canonicalReferences[2];
+        }
+        return nullptr;
+    }
 
 public:
 	static Environment* environment;
 	v8::Isolate* isolate;
 	v8::Persistent<v8::Context> context;
+	// Shared by all the runtimes using the same isolate, like the isolate itself
+	HandleAllocator* handles;
 
-	Runtime(JNIEnv* env, jobject runtime, jobject functionCache, jobject typeGetterCache,
-	    jobject equalityCheckerCache, jobject externalCache);
+	Runtime(JNIEnv* env, jobject runtime, jobject functionCache, jobject externalCache);
+	Runtime(JNIEnv* env, const Runtime* parent, jobject runtime, jobject functionCache, jobject externalCache);
 
     inline auto getHandle() const -> jlong
     {
         return reinterpret_cast<jlong>(this);
     }
 
+	void setCanonicalReferences(JNIEnv* env, jobjectArray references);
+
 	auto createV8String(JNIEnv* env, jstring &string) const -> v8::Local<v8::String>;
 
 	auto compileScript(JNIEnv* env, v8::Local<v8::Context> context, v8::Local<v8::String> fileName,
 	    v8::Local<v8::String> source, v8::Local<v8::Script> &script) const -> bool;
 	auto runScript(JNIEnv* env, v8::Local<v8::Context> context, v8::Local<v8::Script> script,
 	    v8::Local<v8::Value> &result) -> bool;
+	auto evaluateScript(JNIEnv* env, v8::Local<v8::Context> context, jstring fileName, jstring sourceCode,
+	    v8::Local<v8::Value> &result) -> bool;
 
 	void throwJNIExceptionInJS(JNIEnv* env, jthrowable throwable) const;
 	void throwExecutionException(JNIEnv* env, v8::Local<v8::Context> context, v8::TryCatch* tryCatch) const;
@@ -53,17 +153,21 @@ public:
         return environment->getResultType(env, context, handle->GetLocal<v8::Value>());
     }
 
-    inline auto NewReference(JNIEnv* env, v8::Local<v8::Context> context, const v8::Local<v8::Value>& value,
-        jobject typeGetter, jobject equalityChecker) -> jobject
+    inline auto NewReference(JNIEnv* env, v8::Local<v8::Context> context, const v8::Local<v8::Value>& value) -> jobject
     {
-        auto* handle = new Handle(isolate, value);
-        return NewReference(env, handle, getReferenceType(env, context, handle), typeGetter, equalityChecker);
+        jobject canonical = getCanonicalReference(value);
+        if (canonical != nullptr)
+        {
+            // A new local reference, since callers may delete it
+            return env->NewLocalRef(canonical);
+        }
+        auto* handle = handles->New(isolate, value);
+        return NewReference(env, handle, getReferenceType(env, context, handle));
     }
 
-    inline auto NewReference(JNIEnv* env, Handle* handle, jobject type, jobject typeGetter, jobject equalityChecker) const -> jobject
+    inline auto NewReference(JNIEnv* env, Handle* handle, jobject type) const -> jobject
 	{
-	    jobject reference = environment->NewReference(env, handle->AsLong(), type, typeGetter, equalityChecker);
-	    environment->trackReference(env, runtime, reference);
+	    jobject reference = environment->NewReference(env, handle->AsLong(), type, runtime);
 	    if (env->ExceptionCheck() == JNI_TRUE) {
         	// Don't clear so there is no need to rethrow exception
         	// env->ExceptionClear();
@@ -77,59 +181,29 @@ public:
     	env->CallVoidMethod(functionCache, environment->cacheStore, handle, object);
     }
 
-    inline auto FunctionCacheGet(JNIEnv* env, jlong handle) const -> jobject
-    {
-    	return env->CallObjectMethod(functionCache, environment->cacheGet, handle);
-    }
-
     inline void FunctionCacheDelete(JNIEnv* env, jlong handle) const
     {
     	env->CallVoidMethod(functionCache, environment->cacheDelete, handle);
     }
 
-    inline void TypeGetterCacheStore(JNIEnv* env, jlong handle, jobject object) const
-    {
-    	env->CallVoidMethod(typeGetterCache, environment->cacheStore, handle, object);
-    }
-
-    inline auto TypeGetterCacheGet(JNIEnv* env, jlong handle) const -> jobject
-    {
-    	return env->CallObjectMethod(typeGetterCache, environment->cacheGet, handle);
-    }
-
-    inline void TypeGetterCacheDelete(JNIEnv* env, jlong handle) const
-    {
-    	env->CallVoidMethod(typeGetterCache, environment->cacheDelete, handle);
-    }
-
-    inline void EqualityCheckerCacheStore(JNIEnv* env, jlong handle, jobject object) const
-    {
-    	env->CallVoidMethod(equalityCheckerCache, environment->cacheStore, handle, object);
-    }
-
-    inline auto EqualityCheckerCacheGet(JNIEnv* env, jlong handle) const -> jobject
-    {
-    	return env->CallObjectMethod(equalityCheckerCache, environment->cacheGet, handle);
-    }
-
-    inline void EqualityCheckerCacheDelete(JNIEnv* env, jlong handle) const
+    inline void ExternalCacheStore(JNIEnv* env, jlong handle, jobject object) const
     {
-    	env->CallVoidMethod(equalityCheckerCache, environment->cacheDelete, handle);
+    	env->CallVoidMethod(externalCache, environment->cacheStore, handle, object);
     }
 
-    inline void ExternalCacheStore(JNIEnv* env, jlong handle, jobject object) const
+    inline void ExternalCacheDelete(JNIEnv* env, jlong handle) const
     {
-    	env->CallVoidMethod(externalCache, environment->cacheStore, handle, object);
+    	env->CallVoidMethod(externalCache, environment->cacheDelete, handle);
     }
 
-    inline auto ExternalCacheGet(JNIEnv* env, jlong handle) const -> jobject
+    inline void bind(RuntimeData* data)
     {
-    	return env->CallObjectMethod(externalCache, environment->cacheGet, handle);
+        boundData.insert(data);
     }
 
-    inline void ExternalCacheDelete(JNIEnv* env, jlong handle) const
+    inline void unbind(RuntimeData* data)
     {
-    	env->CallVoidMethod(externalCache, environment->cacheDelete, handle);
+        boundData.erase(data);
     }
 
 	static auto safeCast(JNIEnv* env, jlong runtimeHandle) -> Runtime*;
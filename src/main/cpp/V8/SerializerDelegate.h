@@ -0,0 +1,27 @@
+#ifndef SERIALIZER_DELEGATE_H_
+#define SERIALIZER_DELEGATE_H_
+
+#include "v8.h"
+
+// Buffers produced by a ValueSerializer are allocated with the default ReallocateBufferMemory, hence they must be
+// released with free().
+class SerializerDelegate : public v8::ValueSerializer::Delegate
+{
+private:
+    v8::Isolate* isolate;
+
+public:
+    explicit SerializerDelegate(v8::Isolate* isolate)
+    : isolate(isolate)
+    {
+    }
+
+    // Values that cannot be cloned (e.g. functions) are reported as JavaScript errors, so that they can be converted
+    // into execution exceptions like any other script error.
+    void ThrowDataCloneError(v8::Local<v8::String> message) override
+    {
+        isolate->ThrowException(v8::Exception::Error(message));
+    }
+};
+
+#endif
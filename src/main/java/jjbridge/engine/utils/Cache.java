@@ -1,19 +1,49 @@
 package jjbridge.engine.utils;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * This class allows caching objects of the given type.
+ * <p>Objects are stored in an open addressing table keyed by primitive handles, so lookups neither box the handle nor
+ * allocate. The cache is thread safe, since native code can reach it from finalizers as well as from callbacks.</p>
  *
  * @param <T> the type of the objects to cache
  * */
 public class Cache<T>
 {
-    private final HashMap<Long, T> callbackCache;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
 
     public Cache()
     {
-        this.callbackCache = new HashMap<>();
+        this.keys = new long[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    private static int hash(long handle)
+    {
+        // Handles are mostly aligned pointers: mix all the bits so that they spread over the table
+        long h = handle * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int indexOf(long handle)
+    {
+        int mask = this.keys.length - 1;
+        int index = hash(handle) & mask;
+        while (this.values[index] != null)
+        {
+            if (this.keys[index] == handle)
+            {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1 - index;
     }
 
     /**
@@ -22,9 +52,30 @@ public class Cache<T>
      * @param handle the handle used for retrieval
      * @param value the value to store
      * */
-    public void store(long handle, T value)
+    public synchronized void store(long handle, T value)
     {
-        this.callbackCache.put(handle, value);
+        if (value == null)
+        {
+            delete(handle);
+            return;
+        }
+
+        int index = indexOf(handle);
+        if (index >= 0)
+        {
+            this.values[index] = value;
+            return;
+        }
+        // Keep the load factor at most 1/2, so that probe sequences stay short
+        if ((this.size + 1) * 2 > this.keys.length)
+        {
+            resize(this.keys.length * 2);
+            index = indexOf(handle);
+        }
+        index = -1 - index;
+        this.keys[index] = handle;
+        this.values[index] = value;
+        this.size++;
     }
 
     /**
@@ -33,9 +84,11 @@ public class Cache<T>
      * @param handle the handle used for retrieval
      * @return the object previously stored if available, or {@code null} otherwise.
      * */
-    public T get(long handle)
+    @SuppressWarnings("unchecked")
+    public synchronized T get(long handle)
     {
-        return this.callbackCache.get(handle);
+        int index = indexOf(handle);
+        return index >= 0 ? (T) this.values[index] : null;
     }
 
     /**
@@ -43,16 +96,66 @@ public class Cache<T>
      *
      * @param handle the handle used for retrieval
      * */
-    public void delete(long handle)
+    public synchronized void delete(long handle)
+    {
+        int index = indexOf(handle);
+        if (index < 0)
+        {
+            return;
+        }
+
+        // Shift back the following entries of the probe sequence instead of leaving a tombstone
+        int mask = this.keys.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (this.values[next] != null)
+        {
+            int home = hash(this.keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask))
+            {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.values[hole] = null;
+        this.size--;
+    }
+
+    /**
+     * Counts the objects in the cache.
+     *
+     * @return the number of objects currently stored
+     * */
+    public synchronized int size()
     {
-        this.callbackCache.remove(handle);
+        return this.size;
     }
 
     /**
      * Removes all objects from the cache.
      * */
-    public void clear()
+    public synchronized void clear()
+    {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    private void resize(int capacity)
     {
-        this.callbackCache.clear();
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldValues[i] != null)
+            {
+                int index = -1 - indexOf(oldKeys[i]);
+                this.keys[index] = oldKeys[i];
+                this.values[index] = oldValues[i];
+            }
+        }
     }
 }
@@ -2,19 +2,27 @@ package jjbridge.engine.utils;
 
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
+import java.util.function.LongConsumer;
 
 /**
- * This class associates a {@link CleanUpAction} to a {@link PhantomReference}.
- * <p>This allows to perform additional clean up operation before the reference is cleared by the garbage collector.</p>
+ * This class associates a clean up action to a {@link PhantomReference}.
+ * <p>This allows to perform additional clean up operation before the reference is cleared by the garbage collector.
+ * The action receives the id of the reference, so that a single action can be shared by all the references of the same
+ * owner instead of allocating one for each of them.</p>
  *
  * @see ReferenceMonitor
  * */
 public class NativeReference<T> extends PhantomReference<T>
 {
-    private final CleanUpAction cleanUpAction;
+    private final LongConsumer cleanUpAction;
     public final long id;
 
     NativeReference(long id, T referent, ReferenceQueue<? super T> q, CleanUpAction cleanUpAction)
+    {
+        this(id, referent, q, ignored -> cleanUpAction.cleanUp());
+    }
+
+    NativeReference(long id, T referent, ReferenceQueue<? super T> q, LongConsumer cleanUpAction)
     {
         super(referent, q);
         this.id = id;
@@ -22,11 +30,10 @@ public class NativeReference<T> extends PhantomReference<T>
     }
 
     /**
-     * Performs the {@link CleanUpAction} passed in
-     * {@link #NativeReference(long, Object, ReferenceQueue, CleanUpAction)}.
+     * Performs the clean up action passed in the constructor, giving it the id of this reference.
      * */
     public void cleanUp()
     {
-        this.cleanUpAction.cleanUp();
+        this.cleanUpAction.accept(this.id);
     }
 }
@@ -1,10 +1,12 @@
 package jjbridge.engine.utils;
 
 import java.lang.ref.ReferenceQueue;
-import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 
 /**
  * This class simplifies the interaction with the Java garbage collector, allowing a custom finalization action to be
@@ -26,6 +28,8 @@ import java.util.concurrent.atomic.AtomicLong;
  * // Once all references to `obj` are lost, the garbage collector will detect `obj` can be cleared, and the clean up
  * // action will be performed.
  * }</pre>
+ * <p>A single monitor can be shared by any number of owners: tracking is lock free and the monitor thread sleeps until
+ * the garbage collector enqueues a reference.</p>
  * */
 public class ReferenceMonitor<T> extends Thread
 {
@@ -33,33 +37,30 @@ public class ReferenceMonitor<T> extends Thread
     private static final AtomicLong idCounter = new AtomicLong(0);
     private final AtomicBoolean interrupted;
     private final ReferenceQueue<T> referenceQueue;
-    private final HashMap<Long, NativeReference<T>> references;
-
-    private final long millisPause;
+    private final Set<NativeReference<T>> references;
 
     /**
-     * Creates a reference monitor with default settings.
-     * <p>This is equivalent to calling {@link #ReferenceMonitor(long)} with {@code millisPause = 50}</p>
+     * Creates a reference monitor.
      * */
     public ReferenceMonitor()
     {
-        this(50);
+        super("Reference Monitor [" + threadId.getAndIncrement() + "]");
+        this.interrupted = new AtomicBoolean(false);
+        this.referenceQueue = new ReferenceQueue<>();
+        this.references = ConcurrentHashMap.newKeySet();
+        this.setDaemon(true);
     }
 
     /**
      * Creates a reference monitor.
      *
-     * @param millisPause the number of milliseconds the reference monitor will pause its execution if there are no
-     *                    pending references to clear.
+     * @param millisPause ignored: the monitor no longer polls, it waits for the garbage collector instead
+     * @deprecated use {@link #ReferenceMonitor()}
      * */
+    @Deprecated
     public ReferenceMonitor(long millisPause)
     {
-        super("Reference Monitor [" + threadId.getAndIncrement() + "]");
-        this.millisPause = millisPause;
-        this.interrupted = new AtomicBoolean(false);
-        this.referenceQueue = new ReferenceQueue<>();
-        this.references = new HashMap<>();
-        this.setDaemon(true);
+        this();
     }
 
     private static long generateId()
@@ -76,16 +77,50 @@ public class ReferenceMonitor<T> extends Thread
      * @param object the object to track
      * @param cleanUpAction the action to be performed
      * */
-    public synchronized void track(T object, CleanUpAction cleanUpAction)
+    public void track(T object, CleanUpAction cleanUpAction)
     {
-        NativeReference<T> ref = new NativeReference<>(generateId(), object, this.referenceQueue, cleanUpAction);
-        this.references.put(ref.id, ref);
+        // The registry keeps the phantom reference reachable until it is enqueued
+        this.references.add(new NativeReference<>(generateId(), object, this.referenceQueue, cleanUpAction));
+    }
+
+    /**
+     * Associate a clean up action to be performed by this monitor when the object is garbage collected.
+     * <p>The action is given the id passed here, so the same action can be shared by many objects: this spares
+     * allocating a capturing action for each of them. As for {@link #track(Object, CleanUpAction)}, <strong>the clean
+     * up action MUST NOT CONTAIN any reference to the tracked object</strong>.</p>
+     *
+     * @param object the object to track
+     * @param id the value passed to the clean up action, such as the native handle owned by the object
+     * @param cleanUpAction the action to be performed
+     * */
+    public void track(T object, long id, LongConsumer cleanUpAction)
+    {
+        this.references.add(new NativeReference<>(id, object, this.referenceQueue, cleanUpAction));
     }
 
     protected void clean(NativeReference<T> ref)
     {
-        ref.cleanUp();
-        this.references.remove(ref.id);
+        try
+        {
+            ref.cleanUp();
+        }
+        finally
+        {
+            this.references.remove(ref);
+        }
+    }
+
+    /**
+     * Starts the monitor, unless it is already started.
+     * <p>This allows owners sharing a monitor to start it without coordination.</p>
+     * */
+    @Override
+    public synchronized void start()
+    {
+        if (this.getState() == State.NEW)
+        {
+            super.start();
+        }
     }
 
     @Override
@@ -96,15 +131,16 @@ public class ReferenceMonitor<T> extends Thread
         {
             try
             {
-                NativeReference<T> ref = (NativeReference<T>) this.referenceQueue.remove(millisPause);
-                if (ref != null)
-                {
-                    clean(ref);
-                }
+                clean((NativeReference<T>) this.referenceQueue.remove());
             }
             catch (InterruptedException e)
             {
-                e.printStackTrace();
+                // Woken up by interrupt(): the loop condition tells whether to stop
+            }
+            catch (RuntimeException e)
+            {
+                // A failing clean up must not stop the monitor, which may be shared
+                this.getUncaughtExceptionHandler().uncaughtException(this, e);
             }
         }
 
@@ -115,5 +151,6 @@ public class ReferenceMonitor<T> extends Thread
     public void interrupt()
     {
         this.interrupted.set(true);
+        super.interrupt();
     }
 }
@@ -0,0 +1,220 @@
+package jjbridge.engine.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timer wheel running short actions once their delay has elapsed.
+ * <p>A single thread serves all the timeouts: scheduling and cancelling are constant time operations, at the cost of a
+ * precision bounded by the tick duration. Timeouts never expire before their delay, but they can expire up to a couple
+ * of ticks later. This makes the wheel suitable for large amounts of deadlines which are usually cancelled before
+ * expiring.</p>
+ * <p>Actions run on the thread of the wheel, so they must be quick and must not block.</p>
+ * */
+public class TimerWheel extends Thread
+{
+    private static final AtomicInteger threadId = new AtomicInteger();
+    private final AtomicBoolean interrupted;
+    private final Queue<Timeout> pending;
+    private final List<ArrayDeque<Timeout>> wheel;
+    private final int mask;
+    private final long tickNanos;
+    private final long startNanos;
+    private long tick;
+
+    /**
+     * Creates a timer wheel with default settings.
+     * <p>This is equivalent to calling {@link #TimerWheel(long, TimeUnit, int)} with a tick of 10 milliseconds and
+     * 512 buckets.</p>
+     * */
+    public TimerWheel()
+    {
+        this(10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Creates a timer wheel.
+     *
+     * @param tickDuration the duration of a tick of the wheel
+     * @param unit the unit of {@code tickDuration}
+     * @param wheelSize the number of buckets of the wheel, rounded up to a power of two
+     * */
+    public TimerWheel(long tickDuration, TimeUnit unit, int wheelSize)
+    {
+        super("Timer Wheel [" + threadId.getAndIncrement() + "]");
+        if (tickDuration <= 0 || wheelSize <= 0)
+        {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        int buckets = Integer.highestOneBit(wheelSize);
+        if (buckets < wheelSize)
+        {
+            buckets <<= 1;
+        }
+        this.interrupted = new AtomicBoolean(false);
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.wheel = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++)
+        {
+            this.wheel.add(new ArrayDeque<>());
+        }
+        this.mask = buckets - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startNanos = System.nanoTime();
+        this.setDaemon(true);
+    }
+
+    /**
+     * Schedules an action to run once the specified delay has elapsed.
+     *
+     * @param action the action to run
+     * @param delay the delay
+     * @param unit the unit of {@code delay}
+     * @return the timeout which can be used to cancel the action
+     * */
+    public Timeout schedule(Runnable action, long delay, TimeUnit unit)
+    {
+        Timeout timeout = new Timeout(action, System.nanoTime() + unit.toNanos(Math.max(delay, 0)));
+        this.pending.add(timeout);
+        return timeout;
+    }
+
+    private void transferPending()
+    {
+        Timeout timeout;
+        while ((timeout = this.pending.poll()) != null)
+        {
+            if (timeout.isCancelled())
+            {
+                continue;
+            }
+            // Rounding up guarantees the timeout never expires before its deadline
+            long expirationTick = Math.max(Math.floorDiv(timeout.deadlineNanos - this.startNanos + this.tickNanos - 1,
+                    this.tickNanos), this.tick);
+            timeout.rounds = (expirationTick - this.tick) / this.wheel.size();
+            this.wheel.get((int) (expirationTick & this.mask)).add(timeout);
+        }
+    }
+
+    private void expireBucket(ArrayDeque<Timeout> bucket)
+    {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext())
+        {
+            Timeout timeout = iterator.next();
+            if (timeout.isCancelled())
+            {
+                iterator.remove();
+            }
+            else if (timeout.rounds <= 0)
+            {
+                iterator.remove();
+                try
+                {
+                    timeout.expire();
+                }
+                catch (RuntimeException e)
+                {
+                    // A failing action must not stop the wheel, which serves all the runtimes
+                    this.getUncaughtExceptionHandler().uncaughtException(this, e);
+                }
+            }
+            else
+            {
+                timeout.rounds--;
+            }
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        while (!this.interrupted.get())
+        {
+            long remaining = this.startNanos + (this.tick + 1) * this.tickNanos - System.nanoTime();
+            if (remaining > 0)
+            {
+                LockSupport.parkNanos(this, remaining);
+                continue;
+            }
+            transferPending();
+            expireBucket(this.wheel.get((int) (this.tick & this.mask)));
+            this.tick++;
+        }
+
+        this.pending.clear();
+        for (ArrayDeque<Timeout> bucket : this.wheel)
+        {
+            bucket.clear();
+        }
+    }
+
+    @Override
+    public void interrupt()
+    {
+        this.interrupted.set(true);
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * An action scheduled on a {@link TimerWheel}.
+     * */
+    public static final class Timeout
+    {
+        private final Runnable action;
+        private final long deadlineNanos;
+        private long rounds;
+        private boolean cancelled;
+        private boolean expired;
+
+        private Timeout(Runnable action, long deadlineNanos)
+        {
+            this.action = action;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Prevents the action from running, unless it already did.
+         * <p>If the action is running, this method waits for it to complete: once it returns false the action has
+         * been fully performed.</p>
+         *
+         * @return true if the timeout is cancelled, false if it already expired
+         * */
+        public synchronized boolean cancel()
+        {
+            if (!this.expired)
+            {
+                this.cancelled = true;
+            }
+            return this.cancelled;
+        }
+
+        public synchronized boolean isCancelled()
+        {
+            return this.cancelled;
+        }
+
+        public synchronized boolean isExpired()
+        {
+            return this.expired;
+        }
+
+        private synchronized void expire()
+        {
+            if (this.cancelled)
+            {
+                return;
+            }
+            this.expired = true;
+            this.action.run();
+        }
+    }
+}
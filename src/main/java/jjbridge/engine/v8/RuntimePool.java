@@ -0,0 +1,608 @@
+package jjbridge.engine.v8;
+
+import jjbridge.engine.v8.runtime.Runtime;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A pool of pre-warmed V8 runtimes.
+ * <p>Creating a {@link Runtime} requires a new isolate and context, and closing it forces a full garbage collection
+ * before disposing the isolate. The pool keeps a fixed number of runtimes ready to be borrowed, so that short-lived
+ * tasks do not pay this cost each time. The usage is the following:</p>
+ * <pre>{@code
+ * RuntimePool pool = new RuntimePool(new V8Engine(), 4);
+ *
+ * Runtime runtime = pool.borrow();
+ * try
+ * {
+ *     runtime.executeScript("1 + 1");
+ * }
+ * finally
+ * {
+ *     pool.returnRuntime(runtime);
+ * }
+ * }</pre>
+ * <p>Runtimes are retired when they are returned after reaching the configured number of uses, used heap size or age.
+ * Retired runtimes are closed and replaced on a background worker thread, so that neither the borrower nor the
+ * returner waits for isolate teardown and creation.</p>
+ * <p>Runtimes are not reset between borrows: global state left by a borrower is visible to the next one.</p>
+ * <p>If creating a runtime fails, the borrowers waiting at that moment get the failure, and the creation is retried
+ * at the next borrow.</p>
+ * */
+public final class RuntimePool implements AutoCloseable
+{
+    private static final AtomicInteger poolId = new AtomicInteger();
+
+    private final Supplier<Runtime> runtimeFactory;
+    private final int size;
+    private final int maxUses;
+    private final long maxUsedHeapBytes;
+    private final long maxAgeNanos;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock;
+    private final Condition availability;
+    private final ArrayDeque<Runtime> idleRuntimes;
+    private final Map<Runtime, Entry> entries;
+    private final ExecutorService worker;
+    private volatile boolean closed;
+    // Guarded by lock
+    private int lostCreations;
+    private long creationFailures;
+    private RuntimeException lastCreationFailure;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong creations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a pool whose runtimes are never retired.
+     * <p>This is equivalent to calling {@link #RuntimePool(V8Engine, int, int, long, long)} with all limits set to
+     * {@code 0}.</p>
+     *
+     * @param engine the engine used to create runtimes
+     * @param size the number of runtimes kept by the pool
+     * */
+    public RuntimePool(V8Engine engine, int size)
+    {
+        this(engine, size, 0, 0, 0);
+    }
+
+    /**
+     * Creates a pool and starts warming up its runtimes in background.
+     *
+     * @param engine the engine used to create runtimes
+     * @param size the number of runtimes kept by the pool
+     * @param maxUses the number of borrows after which a runtime is retired, or {@code 0} for no limit
+     * @param maxUsedHeapBytes the used heap size in bytes after which a runtime is retired, or {@code 0} for no limit
+     * @param maxAgeMillis the age in milliseconds after which a runtime is retired, or {@code 0} for no limit
+     * */
+    public RuntimePool(V8Engine engine, int size, int maxUses, long maxUsedHeapBytes, long maxAgeMillis)
+    {
+        this(() -> (Runtime) engine.newRuntime(), size, maxUses, maxUsedHeapBytes, maxAgeMillis, System::nanoTime);
+    }
+
+    RuntimePool(Supplier<Runtime> runtimeFactory, int size, int maxUses, long maxUsedHeapBytes, long maxAgeMillis,
+                LongSupplier nanoClock)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        if (maxUses < 0 || maxUsedHeapBytes < 0 || maxAgeMillis < 0)
+        {
+            throw new IllegalArgumentException("Retirement limits cannot be negative");
+        }
+
+        this.runtimeFactory = runtimeFactory;
+        this.size = size;
+        this.maxUses = maxUses;
+        this.maxUsedHeapBytes = maxUsedHeapBytes;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        this.nanoClock = nanoClock;
+        this.lock = new ReentrantLock();
+        this.availability = this.lock.newCondition();
+        this.idleRuntimes = new ArrayDeque<>();
+        this.entries = new ConcurrentHashMap<>();
+        this.closed = false;
+        this.lostCreations = 0;
+        this.creationFailures = 0;
+
+        String threadName = "Runtime Pool [" + poolId.getAndIncrement() + "]";
+        this.worker = Executors.newSingleThreadExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < size; i++)
+        {
+            this.worker.execute(this::createRuntime);
+        }
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Takes a runtime from the pool, waiting for one to become available if necessary.
+     *
+     * @return the borrowed runtime
+     * @throws InterruptedException if interrupted while waiting
+     * */
+    public Runtime borrow() throws InterruptedException
+    {
+        return borrow(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes a runtime from the pool, waiting up to the specified time for one to become available if necessary.
+     *
+     * @param timeout how long to wait before giving up
+     * @param unit the unit of {@code timeout}
+     * @return the borrowed runtime, or {@code null} if the specified waiting time elapses before a runtime is available
+     * @throws InterruptedException if interrupted while waiting
+     * */
+    public Runtime borrow(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        ensureOpen();
+        this.borrows.incrementAndGet();
+
+        this.lock.lock();
+        try
+        {
+            Runtime runtime = this.idleRuntimes.pollFirst();
+            if (runtime != null)
+            {
+                this.hits.incrementAndGet();
+            }
+            else
+            {
+                this.misses.incrementAndGet();
+                runtime = awaitRuntime(unit.toNanos(timeout));
+                if (runtime == null)
+                {
+                    this.timeouts.incrementAndGet();
+                    return null;
+                }
+            }
+
+            Entry entry = this.entries.get(runtime);
+            entry.borrowed = true;
+            entry.uses++;
+            return runtime;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    private Runtime awaitRuntime(long timeoutNanos) throws InterruptedException
+    {
+        retryLostCreations();
+        long failures = this.creationFailures;
+        long start = this.nanoClock.getAsLong();
+        long remaining = timeoutNanos;
+        try
+        {
+            Runtime runtime;
+            while ((runtime = this.idleRuntimes.pollFirst()) == null)
+            {
+                ensureOpen();
+                if (this.creationFailures != failures)
+                {
+                    throw new IllegalStateException("Cannot create a runtime", this.lastCreationFailure);
+                }
+                if (remaining <= 0)
+                {
+                    return null;
+                }
+                remaining = this.availability.awaitNanos(remaining);
+            }
+            return runtime;
+        }
+        finally
+        {
+            long waited = this.nanoClock.getAsLong() - start;
+            this.totalWaitNanos.addAndGet(waited);
+            this.maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    private void retryLostCreations()
+    {
+        for (; this.lostCreations > 0; this.lostCreations--)
+        {
+            try
+            {
+                this.worker.execute(this::createRuntime);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // The pool has been closed in the meantime
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gives back a runtime previously obtained with {@link #borrow()}.
+     * <p>The caller must not use the runtime after returning it. If the runtime reached any of the retirement limits,
+     * it is closed and replaced in background.</p>
+     *
+     * @param runtime the runtime to return
+     * */
+    public void returnRuntime(Runtime runtime)
+    {
+        Entry entry = this.entries.get(runtime);
+        if (entry == null)
+        {
+            throw new IllegalArgumentException("The runtime does not belong to this pool");
+        }
+        this.lock.lock();
+        try
+        {
+            if (!entry.borrowed)
+            {
+                throw new IllegalStateException("The runtime has already been returned");
+            }
+            entry.borrowed = false;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+
+        if (this.closed)
+        {
+            this.entries.remove(runtime);
+            runtime.close();
+        }
+        else if (shouldRetire(runtime, entry))
+        {
+            this.entries.remove(runtime);
+            this.evictions.incrementAndGet();
+            try
+            {
+                this.worker.execute(() ->
+                {
+                    runtime.close();
+                    createRuntime();
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                // The pool has been closed in the meantime
+                runtime.close();
+            }
+        }
+        else
+        {
+            // Most recently used runtimes are handed out first, so that they are more likely to be warm
+            offerIdle(runtime, true);
+            if (this.closed)
+            {
+                closeIdleRuntimes();
+            }
+        }
+    }
+
+    /**
+     * Reads the current pool metrics.
+     *
+     * @return a snapshot of the metrics
+     * */
+    public Metrics getMetrics()
+    {
+        int idle;
+        this.lock.lock();
+        try
+        {
+            idle = this.idleRuntimes.size();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+        return new Metrics(this.borrows.get(), this.hits.get(), this.misses.get(), this.timeouts.get(),
+                this.totalWaitNanos.get(), this.maxWaitNanos.get(), this.creations.get(), this.evictions.get(), idle,
+                this.entries.size() - idle);
+    }
+
+    /**
+     * Closes the pool and all its idle runtimes.
+     * <p>Runtimes that are currently borrowed are closed as soon as they are returned. Borrowers still waiting for a
+     * runtime fail with {@link IllegalStateException}.</p>
+     * */
+    @Override
+    public void close()
+    {
+        this.lock.lock();
+        try
+        {
+            if (this.closed)
+            {
+                return;
+            }
+            this.closed = true;
+            this.availability.signalAll();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+
+        this.worker.shutdownNow();
+        try
+        {
+            this.worker.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            // Ignored: we must release resources anyway
+            Thread.currentThread().interrupt();
+        }
+        closeIdleRuntimes();
+    }
+
+    private void ensureOpen()
+    {
+        if (this.closed)
+        {
+            throw new IllegalStateException("The pool is closed");
+        }
+    }
+
+    private void createRuntime()
+    {
+        if (this.closed)
+        {
+            return;
+        }
+
+        Runtime runtime;
+        try
+        {
+            runtime = this.runtimeFactory.get();
+        }
+        catch (RuntimeException e)
+        {
+            this.lock.lock();
+            try
+            {
+                // Waiting borrowers are told about the failure, and the next borrow retries the creation
+                this.lostCreations++;
+                this.creationFailures++;
+                this.lastCreationFailure = e;
+                this.availability.signalAll();
+            }
+            finally
+            {
+                this.lock.unlock();
+            }
+            return;
+        }
+        this.creations.incrementAndGet();
+        this.entries.put(runtime, new Entry(this.nanoClock.getAsLong()));
+        offerIdle(runtime, false);
+        if (this.closed)
+        {
+            closeIdleRuntimes();
+        }
+    }
+
+    private void offerIdle(Runtime runtime, boolean first)
+    {
+        this.lock.lock();
+        try
+        {
+            if (first)
+            {
+                this.idleRuntimes.offerFirst(runtime);
+            }
+            else
+            {
+                this.idleRuntimes.offerLast(runtime);
+            }
+            this.availability.signal();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    private void closeIdleRuntimes()
+    {
+        List<Runtime> idle;
+        this.lock.lock();
+        try
+        {
+            idle = new ArrayList<>(this.idleRuntimes);
+            this.idleRuntimes.clear();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+        // Closing a runtime disposes its isolate, which must not delay other threads using the pool
+        for (Runtime runtime : idle)
+        {
+            this.entries.remove(runtime);
+            runtime.close();
+        }
+    }
+
+    private boolean shouldRetire(Runtime runtime, Entry entry)
+    {
+        if (this.maxUses > 0 && entry.uses >= this.maxUses)
+        {
+            return true;
+        }
+        if (this.maxAgeNanos > 0 && this.nanoClock.getAsLong() - entry.createdAt >= this.maxAgeNanos)
+        {
+            return true;
+        }
+        return this.maxUsedHeapBytes > 0 && runtime.getHeapStatistics().getUsedHeapSize() >= this.maxUsedHeapBytes;
+    }
+
+    private static final class Entry
+    {
+        private final long createdAt;
+        // Guarded by the pool lock
+        private int uses;
+        private boolean borrowed;
+
+        private Entry(long createdAt)
+        {
+            this.createdAt = createdAt;
+            this.uses = 0;
+            this.borrowed = false;
+        }
+    }
+
+    /**
+     * A snapshot of the usage statistics of a {@link RuntimePool}.
+     * */
+    public static final class Metrics
+    {
+        private final long borrows;
+        private final long hits;
+        private final long misses;
+        private final long timeouts;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long creations;
+        private final long evictions;
+        private final int idle;
+        private final int borrowed;
+
+        private Metrics(long borrows, long hits, long misses, long timeouts, long totalWaitNanos, long maxWaitNanos,
+                        long creations, long evictions, int idle, int borrowed)
+        {
+            this.borrows = borrows;
+            this.hits = hits;
+            this.misses = misses;
+            this.timeouts = timeouts;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.creations = creations;
+            this.evictions = evictions;
+            this.idle = idle;
+            this.borrowed = borrowed;
+        }
+
+        /**
+         * The total number of borrow requests.
+         *
+         * @return the number of borrow requests
+         * */
+        public long getBorrows()
+        {
+            return borrows;
+        }
+
+        /**
+         * The number of borrow requests served immediately by an idle runtime.
+         *
+         * @return the number of hits
+         * */
+        public long getHits()
+        {
+            return hits;
+        }
+
+        /**
+         * The number of borrow requests that had to wait for a runtime.
+         *
+         * @return the number of misses
+         * */
+        public long getMisses()
+        {
+            return misses;
+        }
+
+        /**
+         * The number of borrow requests that gave up waiting for a runtime.
+         *
+         * @return the number of timeouts
+         * */
+        public long getTimeouts()
+        {
+            return timeouts;
+        }
+
+        /**
+         * The time spent waiting by all borrow requests.
+         *
+         * @param unit the unit of the result
+         * @return the total wait time
+         * */
+        public long getTotalWaitTime(TimeUnit unit)
+        {
+            return unit.convert(totalWaitNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The longest time spent waiting by a single borrow request.
+         *
+         * @param unit the unit of the result
+         * @return the maximum wait time
+         * */
+        public long getMaxWaitTime(TimeUnit unit)
+        {
+            return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The number of runtimes created by the pool, including replacements of retired runtimes.
+         *
+         * @return the number of creations
+         * */
+        public long getCreations()
+        {
+            return creations;
+        }
+
+        /**
+         * The number of runtimes retired because they reached a retirement limit.
+         *
+         * @return the number of evictions
+         * */
+        public long getEvictions()
+        {
+            return evictions;
+        }
+
+        public int getIdle()
+        {
+            return idle;
+        }
+
+        public int getBorrowed()
+        {
+            return borrowed;
+        }
+    }
+}
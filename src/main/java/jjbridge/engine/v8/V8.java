@@ -5,17 +5,18 @@ import jjbridge.api.value.JSType;
 import jjbridge.api.value.strategy.FunctionCallback;
 import jjbridge.engine.utils.Cache;
 import jjbridge.engine.utils.NativeLibraryLoader;
-import jjbridge.engine.v8.runtime.EqualityChecker;
+import jjbridge.engine.v8.runtime.HandleStatistics;
+import jjbridge.engine.v8.runtime.HeapStatistics;
 import jjbridge.engine.v8.runtime.Reference;
-import jjbridge.engine.v8.runtime.ReferenceTypeGetter;
 import jjbridge.engine.v8.runtime.Runtime;
 
+import java.nio.ByteBuffer;
+
 @SuppressWarnings({"checkstyle:MissingJavadocType", "checkstyle:MissingJavadocMethod"})
 public class V8
 {
     private static final NativeLibraryLoader nativeLibraryLoader = new NativeLibraryLoader();
     private static V8 instance;
-    private final Object lock = new Object();
 
     static
     {
@@ -61,14 +62,21 @@ public class V8
 
     private static native boolean initializeV8_internal(String resourcePath);
 
-    private native long createRuntime_internal(Object runtime, Object functionsCache, Object typeGetterCache,
-                                               Object equalityCheckerCache, Object externalCache);
+    private native long createRuntime_internal(Object runtime, Object functionsCache, Object externalCache);
 
     public long createRuntime(Runtime runtime, Cache<FunctionCallback<Reference>> functionsCache,
-                              Cache<ReferenceTypeGetter> typeGetterCache, Cache<EqualityChecker> equalityCheckerCache,
                               Cache<Object> externalCache)
     {
-        return createRuntime_internal(runtime, functionsCache, typeGetterCache, equalityCheckerCache, externalCache);
+        return createRuntime_internal(runtime, functionsCache, externalCache);
+    }
+
+    private native long createContext_internal(long parentHandle, Object runtime, Object functionsCache,
+                                               Object externalCache);
+
+    public long createContext(long parentHandle, Runtime runtime, Cache<FunctionCallback<Reference>> functionsCache,
+                              Cache<Object> externalCache)
+    {
+        return createContext_internal(parentHandle, runtime, functionsCache, externalCache);
     }
 
     private native boolean releaseRuntime_internal(long runtimeHandle);
@@ -85,171 +93,277 @@ public class V8
         releaseReference_internal(runtimeHandle, referenceHandle);
     }
 
+    private native void releaseReferences_internal(long runtimeHandle, long[] referenceHandles);
+
+    public void releaseReferences(long runtimeHandle, long[] referenceHandles)
+    {
+        releaseReferences_internal(runtimeHandle, referenceHandles);
+    }
+
+    private native long lockIsolate_internal(long runtimeHandle);
+
+    public long lockIsolate(long runtimeHandle)
+    {
+        return lockIsolate_internal(runtimeHandle);
+    }
+
+    private native void unlockIsolate_internal(long runtimeHandle, long lockHandle);
+
+    public void unlockIsolate(long runtimeHandle, long lockHandle)
+    {
+        unlockIsolate_internal(runtimeHandle, lockHandle);
+    }
+
+    private native void performMicrotaskCheckpoint_internal(long runtimeHandle);
+
+    public void performMicrotaskCheckpoint(long runtimeHandle)
+    {
+        performMicrotaskCheckpoint_internal(runtimeHandle);
+    }
+
+    private native void collectGarbage_internal(long runtimeHandle);
+
+    public void collectGarbage(long runtimeHandle)
+    {
+        collectGarbage_internal(runtimeHandle);
+    }
+
+    private native long[] getHeapStatistics_internal(long runtimeHandle);
+
+    public HeapStatistics getHeapStatistics(long runtimeHandle)
+    {
+        return new HeapStatistics(getHeapStatistics_internal(runtimeHandle));
+    }
+
+    private native long[] getHandleStatistics_internal(long runtimeHandle);
+
+    public HandleStatistics getHandleStatistics(long runtimeHandle)
+    {
+        return new HandleStatistics(getHandleStatistics_internal(runtimeHandle));
+    }
+
     private native Object getReferenceType_internal(long runtimeHandle, long referenceHandle);
 
     public JSType getReferenceType(long runtimeHandle, long referenceHandle)
     {
-        synchronized (lock)
-        {
-            return (JSType) getReferenceType_internal(runtimeHandle, referenceHandle);
-        }
+        return (JSType) getReferenceType_internal(runtimeHandle, referenceHandle);
     }
 
-    private native Object executeScript_internal(long runtimeHandle, String fileName, String sourceCode,
-                                                 Object referenceTypeGetter, Object equalityChecker);
+    private native Object getReferenceTypes_internal(long runtimeHandle, long[] referenceHandles);
 
-    public Reference executeScript(long runtimeHandle, String fileName, String sourceCode,
-                                   ReferenceTypeGetter referenceTypeGetter, EqualityChecker equalityChecker)
+    public JSType[] getReferenceTypes(long runtimeHandle, long[] referenceHandles)
     {
-        synchronized (lock)
-        {
-            return (Reference) executeScript_internal(runtimeHandle, fileName, sourceCode, referenceTypeGetter,
-                    equalityChecker);
-        }
+        return (JSType[]) getReferenceTypes_internal(runtimeHandle, referenceHandles);
     }
 
-    private native Object globalObjectReference_internal(long runtimeHandle, Object referenceTypeGetter,
-                                                         Object equalityChecker);
+    private native void terminateExecution_internal(long runtimeHandle);
 
-    public Reference globalObjectReference(long runtimeHandle, ReferenceTypeGetter referenceTypeGetter,
-                                            EqualityChecker equalityChecker)
+    public void terminateExecution(long runtimeHandle)
     {
-        synchronized (lock)
-        {
-            return (Reference) globalObjectReference_internal(runtimeHandle, referenceTypeGetter, equalityChecker);
-        }
+        terminateExecution_internal(runtimeHandle);
     }
 
-    private native Object newValue_internal(long runtimeHandle, Object type, Object referenceTypeGetter,
-                                            Object equalityChecker);
+    private native void cancelTerminateExecution_internal(long runtimeHandle);
 
-    public Reference newValue(long runtimeHandle, JSType type, ReferenceTypeGetter referenceTypeGetter,
-                              EqualityChecker equalityChecker)
+    public void cancelTerminateExecution(long runtimeHandle)
     {
-        synchronized (lock)
-        {
-            return (Reference) newValue_internal(runtimeHandle, type, referenceTypeGetter, equalityChecker);
-        }
+        cancelTerminateExecution_internal(runtimeHandle);
+    }
+
+    private native void requestInterrupt_internal(long runtimeHandle);
+
+    public void requestInterrupt(long runtimeHandle)
+    {
+        requestInterrupt_internal(runtimeHandle);
+    }
+
+    private native Object serializeValue_internal(long runtimeHandle, long valueHandle);
+
+    public ByteBuffer serializeValue(long runtimeHandle, long valueHandle)
+    {
+        return (ByteBuffer) serializeValue_internal(runtimeHandle, valueHandle);
+    }
+
+    private native Object deserializeValue_internal(long runtimeHandle, Object buffer);
+
+    public Reference deserializeValue(long runtimeHandle, ByteBuffer buffer)
+    {
+        return (Reference) deserializeValue_internal(runtimeHandle, buffer);
+    }
+
+    private native void releaseSerializedValue_internal(Object buffer);
+
+    public void releaseSerializedValue(ByteBuffer buffer)
+    {
+        releaseSerializedValue_internal(buffer);
+    }
+
+    private native Object executeScript_internal(long runtimeHandle, String fileName, String sourceCode);
+
+    public Reference executeScript(long runtimeHandle, String fileName, String sourceCode)
+    {
+        return (Reference) executeScript_internal(runtimeHandle, fileName, sourceCode);
+    }
+
+    private native void executeScriptIgnoringResult_internal(long runtimeHandle, String fileName, String sourceCode);
+
+    public void executeScriptIgnoringResult(long runtimeHandle, String fileName, String sourceCode)
+    {
+        executeScriptIgnoringResult_internal(runtimeHandle, fileName, sourceCode);
+    }
+
+    private native boolean executeScriptAsBoolean_internal(long runtimeHandle, String fileName, String sourceCode);
+
+    public boolean executeScriptAsBoolean(long runtimeHandle, String fileName, String sourceCode)
+    {
+        return executeScriptAsBoolean_internal(runtimeHandle, fileName, sourceCode);
+    }
+
+    private native int executeScriptAsInt_internal(long runtimeHandle, String fileName, String sourceCode);
+
+    public int executeScriptAsInt(long runtimeHandle, String fileName, String sourceCode)
+    {
+        return executeScriptAsInt_internal(runtimeHandle, fileName, sourceCode);
+    }
+
+    private native double executeScriptAsDouble_internal(long runtimeHandle, String fileName, String sourceCode);
+
+    public double executeScriptAsDouble(long runtimeHandle, String fileName, String sourceCode)
+    {
+        return executeScriptAsDouble_internal(runtimeHandle, fileName, sourceCode);
+    }
+
+    private native String executeScriptAsString_internal(long runtimeHandle, String fileName, String sourceCode);
+
+    public String executeScriptAsString(long runtimeHandle, String fileName, String sourceCode)
+    {
+        return executeScriptAsString_internal(runtimeHandle, fileName, sourceCode);
+    }
+
+    private native Object globalObjectReference_internal(long runtimeHandle);
+
+    public Reference globalObjectReference(long runtimeHandle)
+    {
+        return (Reference) globalObjectReference_internal(runtimeHandle);
+    }
+
+    private native Object createCanonicalReferences_internal(long runtimeHandle);
+
+    public Reference[] createCanonicalReferences(long runtimeHandle)
+    {
+        return (Reference[]) createCanonicalReferences_internal(runtimeHandle);
+    }
+
+    private native Object newValue_internal(long runtimeHandle, Object type);
+
+    public Reference newValue(long runtimeHandle, JSType type)
+    {
+        return (Reference) newValue_internal(runtimeHandle, type);
     }
 
     private native boolean equalsValue_internal(long runtimeHandle, long firstValueHandle, long secondValueHandle);
 
     public boolean equalsValue(long runtimeHandle, long firstValueHandle, long secondValueHandle)
     {
-        synchronized (lock)
-        {
-            return equalsValue_internal(runtimeHandle, firstValueHandle, secondValueHandle);
-        }
+        return equalsValue_internal(runtimeHandle, firstValueHandle, secondValueHandle);
+    }
+
+    private native int getIdentityHash_internal(long runtimeHandle, long valueHandle);
+
+    public int getIdentityHash(long runtimeHandle, long valueHandle)
+    {
+        return getIdentityHash_internal(runtimeHandle, valueHandle);
     }
 
     private native void initUndefinedValue_internal(long runtimeHandle, long valueHandle);
 
     public void initUndefinedValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initUndefinedValue_internal(runtimeHandle, valueHandle);
-        }
+        initUndefinedValue_internal(runtimeHandle, valueHandle);
     }
 
     private native void initNullValue_internal(long runtimeHandle, long valueHandle);
 
     public void initNullValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initNullValue_internal(runtimeHandle, valueHandle);
-        }
+        initNullValue_internal(runtimeHandle, valueHandle);
     }
 
     private native boolean getBooleanValue_internal(long runtimeHandle, long valueHandle);
 
     public boolean getBooleanValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            return getBooleanValue_internal(runtimeHandle, valueHandle);
-        }
+        return getBooleanValue_internal(runtimeHandle, valueHandle);
     }
 
     private native void setBooleanValue_internal(long runtimeHandle, long valueHandle, boolean value);
 
     public void setBooleanValue(long runtimeHandle, long valueHandle, boolean value)
     {
-        synchronized (lock)
-        {
-            setBooleanValue_internal(runtimeHandle, valueHandle, value);
-        }
+        setBooleanValue_internal(runtimeHandle, valueHandle, value);
     }
 
     private native void initBooleanValue_internal(long runtimeHandle, long valueHandle);
 
     public void initBooleanValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initBooleanValue_internal(runtimeHandle, valueHandle);
-        }
+        initBooleanValue_internal(runtimeHandle, valueHandle);
     }
 
     private native double getDoubleValue_internal(long runtimeHandle, long valueHandle);
 
     public double getDoubleValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            return getDoubleValue_internal(runtimeHandle, valueHandle);
-        }
+        return getDoubleValue_internal(runtimeHandle, valueHandle);
     }
 
     private native void setDoubleValue_internal(long runtimeHandle, long valueHandle, double value);
 
     public void setDoubleValue(long runtimeHandle, long valueHandle, double value)
     {
-        synchronized (lock)
-        {
-            setDoubleValue_internal(runtimeHandle, valueHandle, value);
-        }
+        setDoubleValue_internal(runtimeHandle, valueHandle, value);
+    }
+
+    private native int getIntValue_internal(long runtimeHandle, long valueHandle);
+
+    public int getIntValue(long runtimeHandle, long valueHandle)
+    {
+        return getIntValue_internal(runtimeHandle, valueHandle);
+    }
+
+    private native void setIntValue_internal(long runtimeHandle, long valueHandle, int value);
+
+    public void setIntValue(long runtimeHandle, long valueHandle, int value)
+    {
+        setIntValue_internal(runtimeHandle, valueHandle, value);
     }
 
     private native void initDoubleValue_internal(long runtimeHandle, long valueHandle);
 
     public void initDoubleValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initDoubleValue_internal(runtimeHandle, valueHandle);
-        }
+        initDoubleValue_internal(runtimeHandle, valueHandle);
     }
 
     private native String getStringValue_internal(long runtimeHandle, long valueHandle);
 
     public String getStringValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            return getStringValue_internal(runtimeHandle, valueHandle);
-        }
+        return getStringValue_internal(runtimeHandle, valueHandle);
     }
 
     private native void setStringValue_internal(long runtimeHandle, long valueHandle, String value);
 
     public void setStringValue(long runtimeHandle, long valueHandle, String value)
     {
-        synchronized (lock)
-        {
-            setStringValue_internal(runtimeHandle, valueHandle, value);
-        }
+        setStringValue_internal(runtimeHandle, valueHandle, value);
     }
 
     private native void initStringValue_internal(long runtimeHandle, long valueHandle);
 
     public void initStringValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initStringValue_internal(runtimeHandle, valueHandle);
-        }
+        initStringValue_internal(runtimeHandle, valueHandle);
     }
 
     private native Object getExternalValue_internal(long runtimeHandle, long valueHandle);
@@ -257,43 +371,28 @@ public class V8
     @SuppressWarnings("unchecked")
     public <T> T getExternalValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            return (T) getExternalValue_internal(runtimeHandle, valueHandle);
-        }
+        return (T) getExternalValue_internal(runtimeHandle, valueHandle);
     }
 
     private native void setExternalValue_internal(long runtimeHandle, long valueHandle, Object value);
 
     public <T> void setExternalValue(long runtimeHandle, long valueHandle, T value)
     {
-        synchronized (lock)
-        {
-            setExternalValue_internal(runtimeHandle, valueHandle, value);
-        }
+        setExternalValue_internal(runtimeHandle, valueHandle, value);
     }
 
     private native void initExternalValue_internal(long runtimeHandle, long valueHandle);
 
     public void initExternalValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initExternalValue_internal(runtimeHandle, valueHandle);
-        }
+        initExternalValue_internal(runtimeHandle, valueHandle);
     }
 
-    private native Object getObjectProperty_internal(long runtimeHandle, long objectHandle, String property,
-                                           Object referenceTypeGetter, Object equalityChecker);
+    private native Object getObjectProperty_internal(long runtimeHandle, long objectHandle, String property);
 
-    public Reference getObjectProperty(long runtimeHandle, long objectHandle, String property,
-                                       ReferenceTypeGetter referenceTypeGetter, EqualityChecker equalityChecker)
+    public Reference getObjectProperty(long runtimeHandle, long objectHandle, String property)
     {
-        synchronized (lock)
-        {
-            return (Reference) getObjectProperty_internal(runtimeHandle, objectHandle, property, referenceTypeGetter,
-                    equalityChecker);
-        }
+        return (Reference) getObjectProperty_internal(runtimeHandle, objectHandle, property);
     }
 
     private native void setObjectProperty_internal(long runtimeHandle, long objectHandle, String property,
@@ -301,122 +400,163 @@ public class V8
 
     public void setObjectProperty(long runtimeHandle, long objectHandle, String property, long valueHandle)
     {
-        synchronized (lock)
-        {
-            setObjectProperty_internal(runtimeHandle, objectHandle, property, valueHandle);
-        }
+        setObjectProperty_internal(runtimeHandle, objectHandle, property, valueHandle);
     }
 
     private native void initObjectValue_internal(long runtimeHandle, long valueHandle);
 
     public void initObjectValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initObjectValue_internal(runtimeHandle, valueHandle);
-        }
+        initObjectValue_internal(runtimeHandle, valueHandle);
     }
 
     private native String getDateTimeString_internal(long runtimeHandle, long objectHandle);
 
     public String getDateTimeString(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            return getDateTimeString_internal(runtimeHandle, valueHandle);
-        }
+        return getDateTimeString_internal(runtimeHandle, valueHandle);
     }
 
     private native void setDateTimeString_internal(long runtimeHandle, long objectHandle, String dateTime);
 
     public void setDateTimeString(long runtimeHandle, long objectHandle, String value)
     {
-        synchronized (lock)
-        {
-            setDateTimeString_internal(runtimeHandle, objectHandle, value);
-        }
+        setDateTimeString_internal(runtimeHandle, objectHandle, value);
     }
 
     private native void initDateTimeValue_internal(long runtimeHandle, long valueHandle);
 
     public void initDateTimeValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initDateTimeValue_internal(runtimeHandle, valueHandle);
-        }
+        initDateTimeValue_internal(runtimeHandle, valueHandle);
     }
 
     private native Object invokeFunction_internal(long runtimeHandle, long functionHandle, long receiverHandle,
-                                                  long[] argHandles, Object referenceTypeGetter,
-                                                  Object equalityChecker);
+                                                  long[] argHandles);
 
-    public Reference invokeFunction(long runtimeHandle, long functionHandle, long receiverHandle, long[] argHandles,
-                                    ReferenceTypeGetter referenceTypeGetter, EqualityChecker equalityChecker)
+    public Reference invokeFunction(long runtimeHandle, long functionHandle, long receiverHandle, long[] argHandles)
     {
-        synchronized (lock)
-        {
-            return (Reference) invokeFunction_internal(runtimeHandle, functionHandle, receiverHandle, argHandles,
-                    referenceTypeGetter, equalityChecker);
-        }
+        return (Reference) invokeFunction_internal(runtimeHandle, functionHandle, receiverHandle, argHandles);
     }
 
-    private native Object invokeConstructor_internal(long runtimeHandle, long functionHandle, long[] argHandles,
-                                           Object referenceTypeGetter, Object equalityChecker);
+    private native Object invokeConstructor_internal(long runtimeHandle, long functionHandle, long[] argHandles);
 
-    public Reference invokeConstructor(long runtimeHandle, long functionHandle, long[] argHandles,
-                                    ReferenceTypeGetter referenceTypeGetter, EqualityChecker equalityChecker)
+    public Reference invokeConstructor(long runtimeHandle, long functionHandle, long[] argHandles)
     {
-        synchronized (lock)
-        {
-            return (Reference) invokeConstructor_internal(runtimeHandle, functionHandle, argHandles,
-                    referenceTypeGetter, equalityChecker);
-        }
+        return (Reference) invokeConstructor_internal(runtimeHandle, functionHandle, argHandles);
     }
 
-    private native void setFunctionHandler_internal(long runtimeHandle, long functionHandle, Object handler,
-                                          Object referenceTypeGetter, Object equalityChecker);
+    private native void setFunctionHandler_internal(long runtimeHandle, long functionHandle, Object handler);
 
-    public void setFunctionHandler(long runtimeHandle, long functionHandle, FunctionCallback<Reference> handler,
-                                       ReferenceTypeGetter referenceTypeGetter, EqualityChecker equalityChecker)
+    public void setFunctionHandler(long runtimeHandle, long functionHandle, FunctionCallback<Reference> handler)
     {
-        synchronized (lock)
-        {
-            setFunctionHandler_internal(runtimeHandle, functionHandle, handler, referenceTypeGetter, equalityChecker);
-        }
+        setFunctionHandler_internal(runtimeHandle, functionHandle, handler);
     }
 
     private native void initFunctionValue_internal(long runtimeHandle, long valueHandle);
 
     public void initFunctionValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initFunctionValue_internal(runtimeHandle, valueHandle);
-        }
+        initFunctionValue_internal(runtimeHandle, valueHandle);
     }
 
     private native int getArraySize_internal(long runtimeHandle, long arrayHandle);
 
     public int getArraySize(long runtimeHandle, long arrayHandle)
     {
-        synchronized (lock)
-        {
-            return getArraySize_internal(runtimeHandle, arrayHandle);
-        }
+        return getArraySize_internal(runtimeHandle, arrayHandle);
     }
 
-    private native Object getElementByPosition_internal(long runtimeHandle, long arrayHandle, int position,
-                                                        Object referenceTypeGetter, Object equalityChecker);
+    private native Object getElementByPosition_internal(long runtimeHandle, long arrayHandle, int position);
 
-    public Reference getElementByPosition(long runtimeHandle, long arrayHandle, int position,
-                                          ReferenceTypeGetter referenceTypeGetter, EqualityChecker equalityChecker)
+    public Reference getElementByPosition(long runtimeHandle, long arrayHandle, int position)
     {
-        synchronized (lock)
-        {
-            return (Reference) getElementByPosition_internal(runtimeHandle, arrayHandle, position, referenceTypeGetter,
-                    equalityChecker);
-        }
+        return (Reference) getElementByPosition_internal(runtimeHandle, arrayHandle, position);
+    }
+
+    private native double[] getArrayAsDoubles_internal(long runtimeHandle, long arrayHandle);
+
+    public double[] getArrayAsDoubles(long runtimeHandle, long arrayHandle)
+    {
+        return getArrayAsDoubles_internal(runtimeHandle, arrayHandle);
+    }
+
+    private native int[] getArrayAsInts_internal(long runtimeHandle, long arrayHandle);
+
+    public int[] getArrayAsInts(long runtimeHandle, long arrayHandle)
+    {
+        return getArrayAsInts_internal(runtimeHandle, arrayHandle);
+    }
+
+    private native long[] getArrayAsLongs_internal(long runtimeHandle, long arrayHandle);
+
+    public long[] getArrayAsLongs(long runtimeHandle, long arrayHandle)
+    {
+        return getArrayAsLongs_internal(runtimeHandle, arrayHandle);
+    }
+
+    private native Object getArrayAsStrings_internal(long runtimeHandle, long arrayHandle);
+
+    public String[] getArrayAsStrings(long runtimeHandle, long arrayHandle)
+    {
+        return (String[]) getArrayAsStrings_internal(runtimeHandle, arrayHandle);
+    }
+
+    private native Object getArrayElements_internal(long runtimeHandle, long arrayHandle, int from, int to);
+
+    public Reference[] getArrayElements(long runtimeHandle, long arrayHandle, int from, int to)
+    {
+        return (Reference[]) getArrayElements_internal(runtimeHandle, arrayHandle, from, to);
+    }
+
+    private native Object newArrayFromDoubles_internal(long runtimeHandle, double[] values);
+
+    public Reference newArrayFromDoubles(long runtimeHandle, double[] values)
+    {
+        return (Reference) newArrayFromDoubles_internal(runtimeHandle, values);
+    }
+
+    private native Object newArrayFromStrings_internal(long runtimeHandle, String[] values);
+
+    public Reference newArrayFromStrings(long runtimeHandle, String[] values)
+    {
+        return (Reference) newArrayFromStrings_internal(runtimeHandle, values);
+    }
+
+    private native Object newArrayFromReferences_internal(long runtimeHandle, long[] valueHandles);
+
+    public Reference newArrayFromReferences(long runtimeHandle, long[] valueHandles)
+    {
+        return (Reference) newArrayFromReferences_internal(runtimeHandle, valueHandles);
+    }
+
+    private native void setArrayRange_internal(long runtimeHandle, long arrayHandle, int offset, double[] values);
+
+    public void setArrayRange(long runtimeHandle, long arrayHandle, int offset, double[] values)
+    {
+        setArrayRange_internal(runtimeHandle, arrayHandle, offset, values);
+    }
+
+    private native Object newArrayBuffer_internal(long runtimeHandle, ByteBuffer buffer, int offset, int length);
+
+    public Reference newArrayBuffer(long runtimeHandle, ByteBuffer buffer, int offset, int length)
+    {
+        return (Reference) newArrayBuffer_internal(runtimeHandle, buffer, offset, length);
+    }
+
+    private native ByteBuffer getArrayBufferContents_internal(long runtimeHandle, long referenceHandle,
+                                                             long[] backingStoreHandle);
+
+    public ByteBuffer getArrayBufferContents(long runtimeHandle, long referenceHandle, long[] backingStoreHandle)
+    {
+        return getArrayBufferContents_internal(runtimeHandle, referenceHandle, backingStoreHandle);
+    }
+
+    private native void releaseBackingStore_internal(long backingStoreHandle);
+
+    public void releaseBackingStore(long backingStoreHandle)
+    {
+        releaseBackingStore_internal(backingStoreHandle);
     }
 
     private native void setElementByPosition_internal(long runtimeHandle, long arrayHandle, int position,
@@ -424,20 +564,14 @@ public class V8
 
     public void setElementByPosition(long runtimeHandle, long arrayHandle, int position, long valueHandle)
     {
-        synchronized (lock)
-        {
-            setElementByPosition_internal(runtimeHandle, arrayHandle, position, valueHandle);
-        }
+        setElementByPosition_internal(runtimeHandle, arrayHandle, position, valueHandle);
     }
 
     private native void initArrayValue_internal(long runtimeHandle, long valueHandle);
 
     public void initArrayValue(long runtimeHandle, long valueHandle)
     {
-        synchronized (lock)
-        {
-            initArrayValue_internal(runtimeHandle, valueHandle);
-        }
+        initArrayValue_internal(runtimeHandle, valueHandle);
     }
 
     private native long initInspector_internal(long runtimeHandle, Object messageHandler);
@@ -36,17 +36,42 @@ public final class V8Engine implements JSEngine
         V8.setAssetLoader(loader);
     }
 
+    /**
+     * Creates a runtime whose references are reclaimed by the reference monitor shared by all runtimes.
+     *
+     * @return the new runtime
+     * */
     @Override
     public final JSRuntime newRuntime()
     {
-        ReferenceMonitor<Reference> referenceMonitor = new ReferenceMonitor<>(50);
-        return newRuntime(referenceMonitor);
+        return newRuntime(SharedReferenceMonitor.instance);
     }
 
+    /**
+     * Creates a runtime whose references are reclaimed by the specified reference monitor.
+     * <p>The monitor is started if needed, but it is not stopped when the runtime is closed, since it may be shared
+     * with other runtimes.</p>
+     *
+     * @param referenceMonitor the reference monitor
+     * @return the new runtime
+     * */
     public final JSRuntime newRuntime(ReferenceMonitor<Reference> referenceMonitor)
     {
         V8 v8 = V8.getInstance();
-        return new Runtime(v8, referenceMonitor, new Cache<>(), new Cache<>(), new Cache<>(), new Cache<>());
+        return new Runtime(v8, referenceMonitor, new Cache<>(), new Cache<>());
+    }
+
+    /**
+     * Creates a runtime bound to a dedicated event loop thread.
+     *
+     * @return the new runtime
+     * @see Runtime#startEventLoop()
+     * */
+    public final Runtime newEventLoopRuntime()
+    {
+        Runtime runtime = (Runtime) newRuntime();
+        runtime.startEventLoop();
+        return runtime;
     }
 
     @Override
@@ -54,4 +79,9 @@ public final class V8Engine implements JSEngine
     {
         return new Inspector(port, V8.getInstance());
     }
+
+    private static final class SharedReferenceMonitor
+    {
+        private static final ReferenceMonitor<Reference> instance = new ReferenceMonitor<>();
+    }
 }
@@ -21,20 +21,28 @@ class AccessorsFactory
 {
     private final V8 v8;
     private final long runtimeHandle;
+    private final NativeCallDispatcher dispatcher;
     private ReferenceTypeGetter referenceTypeGetter;
     private EqualityChecker equalityChecker;
 
     protected AccessorsFactory(V8 v8, long runtimeHandle)
+    {
+        this(v8, runtimeHandle, new NativeCallDispatcher());
+    }
+
+    protected AccessorsFactory(V8 v8, long runtimeHandle, NativeCallDispatcher dispatcher)
     {
         this.v8 = v8;
         this.runtimeHandle = runtimeHandle;
+        this.dispatcher = dispatcher;
     }
 
     protected ReferenceTypeGetter referenceTypeGetter()
     {
         if (referenceTypeGetter == null)
         {
-            referenceTypeGetter = handle -> this.v8.getReferenceType(this.runtimeHandle, handle);
+            referenceTypeGetter = handle -> this.dispatcher.access(() ->
+                    this.v8.getReferenceType(this.runtimeHandle, handle));
         }
         return referenceTypeGetter;
     }
@@ -43,50 +51,50 @@ class AccessorsFactory
     {
         if (equalityChecker == null)
         {
-            equalityChecker = (firstHandle, secondHandle) ->
-                    this.v8.equalsValue(this.runtimeHandle, firstHandle, secondHandle);
+            equalityChecker = (firstHandle, secondHandle) -> this.dispatcher.access(() ->
+                    this.v8.equalsValue(this.runtimeHandle, firstHandle, secondHandle));
         }
         return equalityChecker;
     }
 
     protected ValueGetter<Boolean> booleanGetter(long handle)
     {
-        return () -> this.v8.getBooleanValue(this.runtimeHandle, handle);
+        return () -> this.dispatcher.access(() -> this.v8.getBooleanValue(this.runtimeHandle, handle));
     }
 
     protected ValueSetter<Boolean> booleanSetter(long handle)
     {
-        return value -> this.v8.setBooleanValue(this.runtimeHandle, handle, value);
+        return value -> this.dispatcher.access(() -> this.v8.setBooleanValue(this.runtimeHandle, handle, value));
     }
 
     protected ValueGetter<Double> doubleGetter(long handle)
     {
-        return () -> this.v8.getDoubleValue(this.runtimeHandle, handle);
+        return () -> this.dispatcher.access(() -> this.v8.getDoubleValue(this.runtimeHandle, handle));
     }
 
     protected ValueSetter<Double> doubleSetter(long handle)
     {
-        return value -> this.v8.setDoubleValue(this.runtimeHandle, handle, value);
+        return value -> this.dispatcher.access(() -> this.v8.setDoubleValue(this.runtimeHandle, handle, value));
     }
 
     protected ValueGetter<String> stringGetter(long handle)
     {
-        return () -> this.v8.getStringValue(this.runtimeHandle, handle);
+        return () -> this.dispatcher.access(() -> this.v8.getStringValue(this.runtimeHandle, handle));
     }
 
     protected ValueSetter<String> stringSetter(long handle)
     {
-        return value -> this.v8.setStringValue(this.runtimeHandle, handle, value);
+        return value -> this.dispatcher.access(() -> this.v8.setStringValue(this.runtimeHandle, handle, value));
     }
 
     protected <T> ValueGetter<T> externalGetter(long handle)
     {
-        return () -> this.v8.getExternalValue(this.runtimeHandle, handle);
+        return () -> this.dispatcher.access(() -> this.v8.<T>getExternalValue(this.runtimeHandle, handle));
     }
 
     protected <T> ValueSetter<T> externalSetter(long handle)
     {
-        return value -> this.v8.setExternalValue(this.runtimeHandle, handle, value);
+        return value -> this.dispatcher.access(() -> this.v8.setExternalValue(this.runtimeHandle, handle, value));
     }
 
     private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
@@ -95,7 +103,7 @@ class AccessorsFactory
     {
         return () ->
         {
-            String dateTimeString = this.v8.getDateTimeString(this.runtimeHandle, handle);
+            String dateTimeString = this.dispatcher.access(() -> this.v8.getDateTimeString(this.runtimeHandle, handle));
             try
             {
                 return new Date(OffsetDateTime.parse(dateTimeString, dateTimeFormatter).toInstant().toEpochMilli());
@@ -112,19 +120,19 @@ class AccessorsFactory
         return value ->
         {
             String format = value.toInstant().atOffset(ZoneOffset.UTC).format(dateTimeFormatter);
-            this.v8.setDateTimeString(this.runtimeHandle, handle, format);
+            this.dispatcher.access(() -> this.v8.setDateTimeString(this.runtimeHandle, handle, format));
         };
     }
 
     protected ObjectPropertyGetter<Reference> propertyGetter(long handle)
     {
-        return name -> this.v8.getObjectProperty(this.runtimeHandle, handle, name, referenceTypeGetter(),
-                equalityChecker());
+        return name -> this.dispatcher.execute(() -> this.v8.getObjectProperty(this.runtimeHandle, handle, name));
     }
 
     protected ObjectPropertySetter<Reference> propertySetter(long handle)
     {
-        return (name, value) -> this.v8.setObjectProperty(this.runtimeHandle, handle, name, value.handle);
+        return (name, value) -> this.dispatcher.execute(() ->
+                this.v8.setObjectProperty(this.runtimeHandle, handle, name, value.handle));
     }
 
     protected ArrayDataGetter<Reference> arrayDataGetter(long handle)
@@ -134,21 +142,21 @@ class AccessorsFactory
             @Override
             public int getSize()
             {
-                return v8.getArraySize(runtimeHandle, handle);
+                return dispatcher.access(() -> v8.getArraySize(runtimeHandle, handle));
             }
 
             @Override
             public Reference getItemByPosition(int position)
             {
-                return v8.getElementByPosition(runtimeHandle, handle, position, referenceTypeGetter(),
-                        equalityChecker());
+                return dispatcher.execute(() -> v8.getElementByPosition(runtimeHandle, handle, position));
             }
         };
     }
 
     protected ArrayDataSetter<Reference> arrayDataSetter(long handle)
     {
-        return (position, value) -> this.v8.setElementByPosition(this.runtimeHandle, handle, position, value.handle);
+        return (position, value) -> this.dispatcher.execute(() ->
+                this.v8.setElementByPosition(this.runtimeHandle, handle, position, value.handle));
     }
 
     protected FunctionInvoker<Reference> functionInvoker(long handle)
@@ -168,22 +176,22 @@ class AccessorsFactory
             @Override
             public Reference invokeFunction(Reference receiver, Reference[] args)
             {
-                return v8.invokeFunction(runtimeHandle, handle, receiver.handle, referenceToHandle(args),
-                        referenceTypeGetter(), equalityChecker());
+                long[] argHandles = referenceToHandle(args);
+                return dispatcher.execute(() -> v8.invokeFunction(runtimeHandle, handle, receiver.handle, argHandles));
             }
 
             @Override
             public Reference invokeConstructor(Reference[] args)
             {
-                return v8.invokeConstructor(runtimeHandle, handle, referenceToHandle(args), referenceTypeGetter(),
-                        equalityChecker());
+                long[] argHandles = referenceToHandle(args);
+                return dispatcher.execute(() -> v8.invokeConstructor(runtimeHandle, handle, argHandles));
             }
         };
     }
 
     protected FunctionSetter<Reference> functionSetter(long handle)
     {
-        return (FunctionCallback<Reference> callback) -> this.v8.setFunctionHandler(this.runtimeHandle, handle,
-                callback, referenceTypeGetter(), equalityChecker());
+        return (FunctionCallback<Reference> callback) -> this.dispatcher.access(() ->
+                this.v8.setFunctionHandler(this.runtimeHandle, handle, callback));
     }
 }
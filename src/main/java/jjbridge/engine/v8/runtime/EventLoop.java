@@ -0,0 +1,289 @@
+package jjbridge.engine.v8.runtime;
+
+import jjbridge.engine.v8.V8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The thread owning a {@link Runtime} running in event loop mode.
+ * <p>Operations submitted from any thread are queued and drained in batches: the isolate lock is acquired once per
+ * batch rather than once per operation, so callers on different threads do not contend for it. After each batch the
+ * pending microtasks are run, together with any timer whose deadline has elapsed.</p>
+ * */
+class EventLoop extends Thread
+{
+    private static final AtomicInteger threadId = new AtomicInteger();
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final V8 v8;
+    private final long runtimeHandle;
+    private final Runnable safePoint;
+    private final AtomicBoolean interrupted;
+    private final LinkedBlockingQueue<Task> tasks;
+    private final PriorityQueue<Timer> timers;
+    private final List<Task> batch;
+    private boolean stopped;
+    private long timerSequence;
+
+    EventLoop(V8 v8, long runtimeHandle)
+    {
+        this(v8, runtimeHandle, EventLoop::doNothing);
+    }
+
+    /**
+     * Creates an event loop.
+     *
+     * @param v8 the V8 instance
+     * @param runtimeHandle the handle of the runtime owning the loop
+     * @param safePoint an action run at the end of each batch, while the isolate lock is still held
+     * */
+    EventLoop(V8 v8, long runtimeHandle, Runnable safePoint)
+    {
+        super("Event Loop [" + threadId.getAndIncrement() + "]");
+        this.v8 = v8;
+        this.runtimeHandle = runtimeHandle;
+        this.safePoint = safePoint;
+        this.interrupted = new AtomicBoolean(false);
+        this.tasks = new LinkedBlockingQueue<>();
+        this.timers = new PriorityQueue<>();
+        this.batch = new ArrayList<>(MAX_BATCH_SIZE);
+        this.stopped = false;
+        this.timerSequence = 0;
+        this.setDaemon(true);
+    }
+
+    boolean isCurrentThread()
+    {
+        return Thread.currentThread() == this;
+    }
+
+    /**
+     * Runs an operation on the event loop.
+     * <p>If called from the event loop itself, the operation runs immediately.</p>
+     *
+     * @param operation the operation to run
+     * @return a future completed with the result of the operation
+     * */
+    <T> CompletableFuture<T> submit(Supplier<T> operation)
+    {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable task = () ->
+        {
+            if (future.isDone())
+            {
+                return;
+            }
+            try
+            {
+                future.complete(operation.get());
+            }
+            catch (Throwable e)
+            {
+                future.completeExceptionally(e);
+            }
+        };
+
+        if (isCurrentThread())
+        {
+            task.run();
+        }
+        else
+        {
+            enqueue(task, future);
+        }
+        return future;
+    }
+
+    /**
+     * Runs an operation on the event loop once the specified delay has elapsed.
+     *
+     * @param operation the operation to run
+     * @param delay the delay
+     * @param unit the unit of {@code delay}
+     * @return a future completed when the operation has run; cancelling it prevents the operation from running
+     * */
+    CompletableFuture<Void> schedule(Runnable operation, long delay, TimeUnit unit)
+    {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        long deadline = System.nanoTime() + unit.toNanos(delay);
+        Runnable task = () -> this.timers.add(new Timer(deadline, this.timerSequence++, operation, future));
+
+        if (isCurrentThread())
+        {
+            task.run();
+        }
+        else
+        {
+            enqueue(task, future);
+        }
+        return future;
+    }
+
+    private void enqueue(Runnable task, CompletableFuture<?> future)
+    {
+        synchronized (this.tasks)
+        {
+            if (this.stopped)
+            {
+                future.completeExceptionally(new IllegalStateException("The event loop has been stopped"));
+                return;
+            }
+            this.tasks.add(new Task(task, future));
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        while (!this.interrupted.get())
+        {
+            try
+            {
+                Task first = this.tasks.poll(nanosToNextTimer(), TimeUnit.NANOSECONDS);
+                if (first != null)
+                {
+                    this.batch.add(first);
+                    this.tasks.drainTo(this.batch, MAX_BATCH_SIZE - 1);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                continue;
+            }
+
+            if (this.batch.isEmpty() && nanosToNextTimer() > 0)
+            {
+                continue;
+            }
+
+            long lockHandle = this.v8.lockIsolate(this.runtimeHandle);
+            try
+            {
+                for (Task task : this.batch)
+                {
+                    task.body.run();
+                }
+                runElapsedTimers();
+                this.v8.performMicrotaskCheckpoint(this.runtimeHandle);
+                this.safePoint.run();
+            }
+            finally
+            {
+                this.batch.clear();
+                this.v8.unlockIsolate(this.runtimeHandle, lockHandle);
+            }
+        }
+
+        synchronized (this.tasks)
+        {
+            this.stopped = true;
+        }
+        for (Task task : this.tasks)
+        {
+            task.future.cancel(false);
+        }
+        this.tasks.clear();
+        for (Timer timer : this.timers)
+        {
+            timer.future.cancel(false);
+        }
+        this.timers.clear();
+    }
+
+    private long nanosToNextTimer()
+    {
+        Timer next = this.timers.peek();
+        if (next == null)
+        {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, next.deadline - System.nanoTime());
+    }
+
+    private void runElapsedTimers()
+    {
+        long now = System.nanoTime();
+        while (!this.timers.isEmpty() && this.timers.peek().deadline - now <= 0)
+        {
+            this.timers.poll().run();
+        }
+    }
+
+    /**
+     * Stops the event loop after the batch currently running, if any.
+     * <p>Pending operations and timers are cancelled.</p>
+     * */
+    @Override
+    public void interrupt()
+    {
+        this.interrupted.set(true);
+        // Wake up the loop without interrupting the thread, which may be running JavaScript code
+        this.tasks.add(new Task(EventLoop::doNothing, new CompletableFuture<>()));
+    }
+
+    private static void doNothing()
+    {
+        // Used as the task which only unblocks the loop, so that it can notice it has been interrupted
+    }
+
+    private static final class Task
+    {
+        private final Runnable body;
+        private final CompletableFuture<?> future;
+
+        private Task(Runnable body, CompletableFuture<?> future)
+        {
+            this.body = body;
+            this.future = future;
+        }
+    }
+
+    private static final class Timer implements Runnable, Comparable<Timer>
+    {
+        private final long deadline;
+        private final long sequence;
+        private final Runnable operation;
+        private final CompletableFuture<Void> future;
+
+        private Timer(long deadline, long sequence, Runnable operation, CompletableFuture<Void> future)
+        {
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.operation = operation;
+            this.future = future;
+        }
+
+        @Override
+        public void run()
+        {
+            if (this.future.isDone())
+            {
+                return;
+            }
+            try
+            {
+                this.operation.run();
+                this.future.complete(null);
+            }
+            catch (Throwable e)
+            {
+                this.future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public int compareTo(Timer other)
+        {
+            int result = Long.compare(this.deadline - other.deadline, 0);
+            return result != 0 ? result : Long.compare(this.sequence, other.sequence);
+        }
+    }
+}
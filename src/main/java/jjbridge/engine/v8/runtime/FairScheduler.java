@@ -0,0 +1,547 @@
+package jjbridge.engine.v8.runtime;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jjbridge.engine.utils.TimerWheel;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Shares a fixed number of CPU permits among runtimes, in proportion to their weights.
+ * <p>Operations run through the scheduler on the calling thread, but only after acquiring one of the permits. Permits
+ * are granted to the waiting runtime which received the least CPU time relative to its weight, so a runtime with
+ * weight 2 gets twice the CPU time of a runtime with weight 1 when both are busy. The usage is the following:</p>
+ * <pre>{@code
+ * FairScheduler scheduler = new FairScheduler(4, 10, TimeUnit.MILLISECONDS);
+ * scheduler.register(runtime, 2);
+ *
+ * JSReference result = scheduler.execute(runtime, () -> runtime.executeScript(script));
+ * }</pre>
+ * <p>When a permit has been held for longer than the time slice while other operations are waiting, the running
+ * script is preempted at its next safe point through {@code v8::Isolate::RequestInterrupt}: it releases the permit
+ * and waits for its turn again, without releasing the isolate lock. Since operations on runtimes sharing that isolate
+ * could not run meanwhile, permits are not granted to them until the preempted script resumes, and a script is only
+ * preempted in favour of operations on other isolates. Java code running inside callbacks is never preempted.</p>
+ * <p>The CPU time of each runtime is measured with the CPU clock of the running thread, when the platform supports it,
+ * and is accounted when each slice ends. Nested operations run inside the slice of the outermost one.</p>
+ * */
+public final class FairScheduler implements AutoCloseable
+{
+    private static final ThreadLocal<Slice> currentSlice = new ThreadLocal<>();
+
+    private final long sliceNanos;
+    private final Consumer<Runtime> interrupter;
+    private final Function<Runtime, Object> isolateOf;
+    private final LongSupplier cpuClock;
+    private final TimerWheel timerWheel;
+    private final Map<Runtime, Account> accounts;
+    private final PriorityQueue<Waiter> waiting;
+    // Isolates locked by preempted threads waiting for a permit
+    private final Map<Object, Waiter> lockedIsolates;
+    private int available;
+    private long sequence;
+    private long minVirtualTime;
+    private boolean closed;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param permits the number of operations allowed to run at the same time
+     * @param timeSlice the time an operation can hold a permit before being preempted in favour of waiting ones
+     * @param unit the unit of {@code timeSlice}
+     * */
+    public FairScheduler(int permits, long timeSlice, TimeUnit unit)
+    {
+        this(permits, timeSlice, unit, Runtime::requestInterrupt, defaultCpuClock(), Runtime::getRoot);
+    }
+
+    FairScheduler(int permits, long timeSlice, TimeUnit unit, Consumer<Runtime> interrupter, LongSupplier cpuClock)
+    {
+        this(permits, timeSlice, unit, interrupter, cpuClock, runtime -> runtime);
+    }
+
+    FairScheduler(int permits, long timeSlice, TimeUnit unit, Consumer<Runtime> interrupter, LongSupplier cpuClock,
+                  Function<Runtime, Object> isolateOf)
+    {
+        if (permits <= 0 || timeSlice <= 0)
+        {
+            throw new IllegalArgumentException("Permits and time slice must be positive");
+        }
+        this.sliceNanos = unit.toNanos(timeSlice);
+        this.interrupter = interrupter;
+        this.isolateOf = isolateOf;
+        this.cpuClock = cpuClock;
+        this.timerWheel = new TimerWheel(Math.max(this.sliceNanos / 4, 1), TimeUnit.NANOSECONDS, 64);
+        this.accounts = new HashMap<>();
+        this.waiting = new PriorityQueue<>(Comparator.<Waiter>comparingLong(w -> w.account.virtualTime)
+                .thenComparingLong(w -> w.sequence));
+        this.lockedIsolates = new HashMap<>();
+        this.available = permits;
+        this.timerWheel.start();
+    }
+
+    private static LongSupplier defaultCpuClock()
+    {
+        try
+        {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled())
+            {
+                return threads::getCurrentThreadCpuTime;
+            }
+        }
+        catch (LinkageError | UnsupportedOperationException e)
+        {
+            // java.lang.management is not available on every platform (e.g. Android)
+        }
+        return System::nanoTime;
+    }
+
+    /**
+     * Allows a runtime to run operations through this scheduler, or updates its weight.
+     * <p>Contexts created with {@link Runtime#newContext()} can be registered separately: their CPU time is
+     * accounted separately, but preempting one of them preempts whatever is running in the shared isolate.</p>
+     *
+     * @param runtime the runtime
+     * @param weight the share of CPU time of the runtime, relative to the weights of the other runtimes
+     * */
+    public synchronized void register(Runtime runtime, int weight)
+    {
+        if (weight <= 0)
+        {
+            throw new IllegalArgumentException("Weight must be positive");
+        }
+        Account account = this.accounts.get(runtime);
+        if (account == null)
+        {
+            account = new Account(runtime, this.isolateOf.apply(runtime), this.minVirtualTime);
+            this.accounts.put(runtime, account);
+        }
+        account.weight = weight;
+    }
+
+    /**
+     * Removes a runtime from this scheduler, discarding its accounting.
+     *
+     * @param runtime the runtime
+     * */
+    public synchronized void unregister(Runtime runtime)
+    {
+        this.accounts.remove(runtime);
+    }
+
+    /**
+     * Runs an operation on the calling thread once a permit is granted to the runtime.
+     *
+     * @param runtime the runtime the operation is charged to
+     * @param operation the operation, which is expected to use {@code runtime}
+     * @return the result of the operation
+     * @throws IllegalArgumentException if the runtime is not registered
+     * @throws IllegalStateException if the scheduler is closed
+     * @throws CancellationException if the thread is interrupted while waiting for a permit
+     * */
+    public <T> T execute(Runtime runtime, Supplier<T> operation)
+    {
+        Slice outer = currentSlice.get();
+        if (outer != null && outer.scheduler() == this)
+        {
+            return operation.get();
+        }
+
+        Account account;
+        synchronized (this)
+        {
+            if (this.closed)
+            {
+                throw new IllegalStateException("The scheduler is closed");
+            }
+            account = this.accounts.get(runtime);
+            if (account == null)
+            {
+                throw new IllegalArgumentException("The runtime is not registered");
+            }
+        }
+
+        currentSlice.set(acquire(account, true));
+        try
+        {
+            return operation.get();
+        }
+        finally
+        {
+            // The slice may have been replaced by preemptions
+            release(currentSlice.get());
+            if (outer == null)
+            {
+                currentSlice.remove();
+            }
+            else
+            {
+                currentSlice.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Reads the accounting of a runtime.
+     *
+     * @param runtime the runtime
+     * @return a snapshot of the usage of the runtime
+     * @throws IllegalArgumentException if the runtime is not registered
+     * */
+    public synchronized Usage getUsage(Runtime runtime)
+    {
+        Account account = this.accounts.get(runtime);
+        if (account == null)
+        {
+            throw new IllegalArgumentException("The runtime is not registered");
+        }
+        return new Usage(account.cpuNanos, account.waitNanos, account.slices, account.preemptions);
+    }
+
+    synchronized int getWaitingCount()
+    {
+        return this.waiting.size();
+    }
+
+    /**
+     * Stops preempting running operations and rejects new ones.
+     * <p>Operations already running or waiting for a permit complete normally.</p>
+     * */
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            this.closed = true;
+        }
+        this.timerWheel.interrupt();
+    }
+
+    // Called by native code from the interrupt callback of the isolate
+    static void interrupted()
+    {
+        Slice slice = currentSlice.get();
+        if (slice != null)
+        {
+            slice.scheduler().yieldSlice(slice);
+        }
+    }
+
+    private void yieldSlice(Slice slice)
+    {
+        long consumed = Math.max(this.cpuClock.getAsLong() - slice.startCpu, 0);
+        long waitStart = System.nanoTime();
+        Account account = slice.account;
+        TimerWheel.Timeout check;
+        Slice next;
+        synchronized (this)
+        {
+            // Interrupts requested for a slice which already ended are stale
+            if (!slice.preempted || slice.finished)
+            {
+                return;
+            }
+            check = finish(slice, consumed);
+            account.virtualTime = Math.max(account.virtualTime, this.minVirtualTime);
+            Waiter waiter = new Waiter(account, this.sequence++);
+            this.waiting.add(waiter);
+            // This thread keeps the isolate locked while waiting, so only this waiter can use it
+            this.lockedIsolates.put(account.isolate, waiter);
+            grantNext();
+            try
+            {
+                awaitPermit(waiter, false);
+            }
+            finally
+            {
+                this.lockedIsolates.remove(account.isolate);
+            }
+            next = startSlice(account, waitStart);
+        }
+        // Cancelling outside of the lock: the check itself runs holding the lock of the timeout
+        check.cancel();
+        next.startCpu = this.cpuClock.getAsLong();
+        currentSlice.set(next);
+    }
+
+    private Slice acquire(Account account, boolean interruptible)
+    {
+        long waitStart = System.nanoTime();
+        Slice slice;
+        synchronized (this)
+        {
+            // Runtimes coming back from idle must not monopolize the permits to catch up
+            account.virtualTime = Math.max(account.virtualTime, this.minVirtualTime);
+            if (this.available > 0 && this.waiting.isEmpty())
+            {
+                this.available--;
+            }
+            else
+            {
+                Waiter waiter = new Waiter(account, this.sequence++);
+                this.waiting.add(waiter);
+                awaitPermit(waiter, interruptible);
+            }
+            slice = startSlice(account, waitStart);
+        }
+        slice.startCpu = this.cpuClock.getAsLong();
+        return slice;
+    }
+
+    private Slice startSlice(Account account, long waitStart)
+    {
+        this.minVirtualTime = Math.max(this.minVirtualTime, account.virtualTime);
+        account.waitNanos += System.nanoTime() - waitStart;
+        account.slices++;
+        Slice slice = new Slice(account);
+        slice.check = this.timerWheel.schedule(() -> checkSlice(slice), this.sliceNanos, TimeUnit.NANOSECONDS);
+        return slice;
+    }
+
+    @SuppressFBWarnings(value = "WA_NOT_IN_LOOP", justification = "Wait is in a loop")
+    private void awaitPermit(Waiter waiter, boolean interruptible)
+    {
+        boolean interrupted = false;
+        while (!waiter.granted)
+        {
+            try
+            {
+                this.wait();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+                if (interruptible && !waiter.granted)
+                {
+                    this.waiting.remove(waiter);
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Interrupted while waiting for a permit");
+                }
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void release(Slice slice)
+    {
+        long consumed = Math.max(this.cpuClock.getAsLong() - slice.startCpu, 0);
+        TimerWheel.Timeout check;
+        synchronized (this)
+        {
+            if (slice.finished)
+            {
+                return;
+            }
+            check = finish(slice, consumed);
+            grantNext();
+        }
+        // Cancelling outside of the lock: the check itself runs holding the lock of the timeout
+        check.cancel();
+    }
+
+    private TimerWheel.Timeout finish(Slice slice, long consumed)
+    {
+        slice.finished = true;
+        Account account = slice.account;
+        account.cpuNanos += consumed;
+        account.virtualTime += consumed / account.weight;
+        return slice.check;
+    }
+
+    private void grantNext()
+    {
+        Waiter next = pollRunnable();
+        if (next == null)
+        {
+            this.available++;
+        }
+        else
+        {
+            next.granted = true;
+            this.notifyAll();
+        }
+    }
+
+    // Takes the first waiter whose isolate is not locked by another waiter, which would block it in native code
+    private Waiter pollRunnable()
+    {
+        if (this.lockedIsolates.isEmpty())
+        {
+            return this.waiting.poll();
+        }
+        List<Waiter> blocked = new ArrayList<>();
+        Waiter next;
+        while ((next = this.waiting.poll()) != null)
+        {
+            Waiter holder = this.lockedIsolates.get(next.account.isolate);
+            if (holder == null || holder == next)
+            {
+                break;
+            }
+            blocked.add(next);
+        }
+        this.waiting.addAll(blocked);
+        return next;
+    }
+
+    // Operations on the isolate of a running slice would only wait for its lock, so they do not preempt it
+    private boolean waitingForOtherIsolates(Account running)
+    {
+        for (Waiter waiter : this.waiting)
+        {
+            if (waiter.account.isolate != running.isolate)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkSlice(Slice slice)
+    {
+        synchronized (this)
+        {
+            if (slice.finished)
+            {
+                return;
+            }
+            if (!waitingForOtherIsolates(slice.account))
+            {
+                slice.check = this.timerWheel.schedule(() -> checkSlice(slice), this.sliceNanos,
+                        TimeUnit.NANOSECONDS);
+                return;
+            }
+            slice.preempted = true;
+            slice.account.preemptions++;
+            // Requested while holding the lock, so that the slice (hence the runtime) cannot end in the meantime
+            this.interrupter.accept(slice.account.runtime);
+        }
+    }
+
+    private static final class Account
+    {
+        private final Runtime runtime;
+        private final Object isolate;
+        private int weight;
+        private long virtualTime;
+        private long cpuNanos;
+        private long waitNanos;
+        private long slices;
+        private long preemptions;
+
+        private Account(Runtime runtime, Object isolate, long virtualTime)
+        {
+            this.runtime = runtime;
+            this.isolate = isolate;
+            this.weight = 1;
+            this.virtualTime = virtualTime;
+        }
+    }
+
+    private static final class Waiter
+    {
+        private final Account account;
+        private final long sequence;
+        private boolean granted;
+
+        private Waiter(Account account, long sequence)
+        {
+            this.account = account;
+            this.sequence = sequence;
+        }
+    }
+
+    private final class Slice
+    {
+        private final Account account;
+        private long startCpu;
+        private TimerWheel.Timeout check;
+        private boolean preempted;
+        private boolean finished;
+
+        private Slice(Account account)
+        {
+            this.account = account;
+        }
+
+        private FairScheduler scheduler()
+        {
+            return FairScheduler.this;
+        }
+    }
+
+    /**
+     * A snapshot of the usage of a runtime registered to a {@link FairScheduler}.
+     * */
+    public static final class Usage
+    {
+        private final long cpuTimeNanos;
+        private final long waitTimeNanos;
+        private final long slices;
+        private final long preemptions;
+
+        private Usage(long cpuTimeNanos, long waitTimeNanos, long slices, long preemptions)
+        {
+            this.cpuTimeNanos = cpuTimeNanos;
+            this.waitTimeNanos = waitTimeNanos;
+            this.slices = slices;
+            this.preemptions = preemptions;
+        }
+
+        /**
+         * The CPU time consumed by the completed slices of the runtime.
+         *
+         * @return the CPU time in nanoseconds
+         * */
+        public long getCpuTimeNanos()
+        {
+            return cpuTimeNanos;
+        }
+
+        /**
+         * The time the runtime spent waiting for permits.
+         *
+         * @return the waiting time in nanoseconds
+         * */
+        public long getWaitTimeNanos()
+        {
+            return waitTimeNanos;
+        }
+
+        /**
+         * The number of permits granted to the runtime, including the ones granted after a preemption.
+         *
+         * @return the number of slices
+         * */
+        public long getSlices()
+        {
+            return slices;
+        }
+
+        /**
+         * The number of times the runtime was preempted in favour of waiting operations.
+         *
+         * @return the number of preemptions
+         * */
+        public long getPreemptions()
+        {
+            return preemptions;
+        }
+    }
+}
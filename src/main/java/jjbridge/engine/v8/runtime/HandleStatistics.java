@@ -0,0 +1,53 @@
+package jjbridge.engine.v8.runtime;
+
+/**
+ * A snapshot of the native handles allocated by a V8 isolate to back its references.
+ * Handles are allocated from chunks of fixed size and reused once released.
+ * */
+public final class HandleStatistics
+{
+    private final long allocations;
+    private final long releases;
+    private final long liveHandles;
+    private final long capacity;
+    private final long chunks;
+
+    /**
+     * Creates the statistics from the raw values returned by native code.
+     *
+     * @param values total allocations, total releases, live handles, capacity and chunks, in this order
+     * */
+    public HandleStatistics(long[] values)
+    {
+        this.allocations = values[0];
+        this.releases = values[1];
+        this.liveHandles = values[2];
+        this.capacity = values[3];
+        this.chunks = values[4];
+    }
+
+    public long getAllocations()
+    {
+        return allocations;
+    }
+
+    public long getReleases()
+    {
+        return releases;
+    }
+
+    public long getLiveHandles()
+    {
+        return liveHandles;
+    }
+
+    public long getCapacity()
+    {
+        return capacity;
+    }
+
+    public long getChunks()
+    {
+        return chunks;
+    }
+}
@@ -0,0 +1,61 @@
+package jjbridge.engine.v8.runtime;
+
+/**
+ * A snapshot of the heap usage of a V8 isolate, as reported by {@code v8::Isolate::GetHeapStatistics}.
+ * All sizes are expressed in bytes.
+ * */
+public final class HeapStatistics
+{
+    private final long totalHeapSize;
+    private final long usedHeapSize;
+    private final long heapSizeLimit;
+    private final long totalPhysicalSize;
+    private final long mallocedMemory;
+    private final long externalMemory;
+
+    /**
+     * Creates the statistics from the raw values returned by native code.
+     *
+     * @param values total heap size, used heap size, heap size limit, total physical size, malloced memory and
+     *               external memory, in this order
+     * */
+    public HeapStatistics(long[] values)
+    {
+        this.totalHeapSize = values[0];
+        this.usedHeapSize = values[1];
+        this.heapSizeLimit = values[2];
+        this.totalPhysicalSize = values[3];
+        this.mallocedMemory = values[4];
+        this.externalMemory = values[5];
+    }
+
+    public long getTotalHeapSize()
+    {
+        return totalHeapSize;
+    }
+
+    public long getUsedHeapSize()
+    {
+        return usedHeapSize;
+    }
+
+    public long getHeapSizeLimit()
+    {
+        return heapSizeLimit;
+    }
+
+    public long getTotalPhysicalSize()
+    {
+        return totalPhysicalSize;
+    }
+
+    public long getMallocedMemory()
+    {
+        return mallocedMemory;
+    }
+
+    public long getExternalMemory()
+    {
+        return externalMemory;
+    }
+}
@@ -0,0 +1,80 @@
+package jjbridge.engine.v8.runtime;
+
+import java.util.function.Supplier;
+
+/**
+ * Decides on which thread the native calls of a {@link Runtime} are performed.
+ * <p>This baseline implementation performs every call directly on the calling thread, relying on the isolate lock
+ * taken by native code. On Java 21 and later, a version of this class that keeps virtual threads from pinning their
+ * carrier is loaded from the multi-release JAR instead.</p>
+ * */
+final class NativeCallDispatcher
+{
+    /**
+     * Tells on behalf of which thread the current native call is performed.
+     * <p>State belonging to the caller, such as its reference scope, is found through this thread, so that it is also
+     * found while the call is performed on another thread.</p>
+     *
+     * @return the thread which made the current call
+     * */
+    static Thread caller()
+    {
+        return Thread.currentThread();
+    }
+
+    /**
+     * Tells whether calls from the current thread are performed directly on it.
+     * <p>Callers can then skip wrapping a short call in a lambda, and boxing its result.</p>
+     *
+     * @return {@code true} if {@link #access(Supplier)} and {@link #execute(Supplier)} would just perform the call
+     * */
+    boolean callsDirectly()
+    {
+        return true;
+    }
+
+    /**
+     * Performs a call which may run JavaScript code for an arbitrarily long time.
+     * <p>Besides scripts and functions, this includes reading and writing properties and elements, and converting
+     * values, since they can run getters, setters, proxy traps and {@code valueOf} methods.</p>
+     *
+     * @param call the native call
+     * @return the result of the call
+     * */
+    <T> T execute(Supplier<T> call)
+    {
+        return call.get();
+    }
+
+    /**
+     * Performs a call which may run JavaScript code for an arbitrarily long time, and has no result.
+     *
+     * @param call the native call
+     * @see #execute(Supplier)
+     * */
+    void execute(Runnable call)
+    {
+        call.run();
+    }
+
+    /**
+     * Performs a short call which only reads or writes a value, without running any JavaScript code.
+     *
+     * @param call the native call
+     * @return the result of the call
+     * */
+    <T> T access(Supplier<T> call)
+    {
+        return call.get();
+    }
+
+    /**
+     * Performs a short call which only writes a value, without running any JavaScript code.
+     *
+     * @param call the native call
+     * */
+    void access(Runnable call)
+    {
+        call.run();
+    }
+}
@@ -2,6 +2,7 @@ package jjbridge.engine.v8.runtime;
 
 import jjbridge.api.runtime.JSReference;
 import jjbridge.api.value.JSType;
+import jjbridge.api.value.JSValue;
 
 /**
  * This implementation of {@link JSReference} holds a reference to a JavaScript value inside V8 engine memory.
@@ -10,16 +11,27 @@ public class Reference implements JSReference
 {
     public final long handle;
     private final JSType nominalType;
-    private final ReferenceTypeGetter typeGetter;
-    private final EqualityChecker equalityChecker;
+    // Type checks and comparisons are resolved through the runtime, so a reference holds no behaviour of its own
+    private final Runtime runtime;
+    private volatile JSType actualType;
+    // Zero until computed: native code never returns it as a hash
+    private volatile int identityHash;
+    // The wrapper resolving the value as its actual type, reclaimed together with the reference
+    private volatile JSValue wrapper;
 
-    protected Reference(long handle, JSType nominalType, ReferenceTypeGetter typeGetter,
-                        EqualityChecker equalityChecker)
+    /**
+     * Creates a reference to a value of a runtime and registers it with that runtime.
+     * <p>This is also the constructor used by native code: registering here spares a second upcall for every
+     * reference returned from JavaScript.</p>
+     * */
+    protected Reference(long handle, JSType nominalType, Runtime runtime)
     {
         this.handle = handle;
         this.nominalType = nominalType;
-        this.typeGetter = typeGetter;
-        this.equalityChecker = equalityChecker;
+        this.runtime = runtime;
+        // References are created with the type of the value they hold
+        this.actualType = nominalType;
+        runtime.track(this);
     }
 
     @Override
@@ -28,12 +40,67 @@ public class Reference implements JSReference
         return this.nominalType;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>The type is cached: values can only be replaced through the bridge, which invalidates it.</p>
+     * */
     @Override
     public JSType getActualType()
     {
-        return this.typeGetter.getType(handle);
+        JSType type = this.actualType;
+        if (type == null)
+        {
+            type = this.runtime.getReferenceType(this.handle);
+            cacheActualType(type);
+        }
+        return type;
+    }
+
+    JSType cachedActualType()
+    {
+        return this.actualType;
+    }
+
+    // Writes are serialized, so that a wrapper is never cached for a type the value no longer has
+    synchronized void cacheActualType(JSType type)
+    {
+        if (type != this.actualType)
+        {
+            this.wrapper = null;
+        }
+        this.actualType = type;
+    }
+
+    synchronized void invalidateActualType()
+    {
+        this.wrapper = null;
+        this.actualType = null;
+    }
+
+    void valueReplaced(JSType type)
+    {
+        cacheActualType(type);
+        this.identityHash = 0;
     }
 
+    JSValue cachedWrapper()
+    {
+        return this.wrapper;
+    }
+
+    synchronized void cacheWrapper(JSType type, JSValue wrapper)
+    {
+        if (type == this.actualType)
+        {
+            this.wrapper = wrapper;
+        }
+    }
+
+    /**
+     * Checks whether the given object is a reference to a value strictly equal to the value of this reference.
+     * <p>The comparison needs no native call when both references share the handle or their hashes are known to
+     * differ.</p>
+     * */
     @Override
     public boolean equals(Object obj)
     {
@@ -42,12 +109,34 @@ public class Reference implements JSReference
             return false;
         }
         Reference other = (Reference) obj;
-        return this.equalityChecker.checkAreEqual(this.handle, other.handle);
+        if (this.handle == other.handle)
+        {
+            return true;
+        }
+        int hash = this.identityHash;
+        int otherHash = other.identityHash;
+        if (hash != 0 && otherHash != 0 && hash != otherHash)
+        {
+            return false;
+        }
+        return this.runtime.referencesEqual(this.handle, other.handle);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>The hash is consistent with {@link #equals(Object)}: objects hash by their identity hash in V8, while strings
+     * and numbers hash by their content. It is computed by a single native call and then cached until the value of the
+     * reference is replaced.</p>
+     * */
     @Override
     public int hashCode()
     {
-        return ((int) (handle ^ (handle >>> 32)) * 31) ^ nominalType.hashCode();
+        int hash = this.identityHash;
+        if (hash == 0)
+        {
+            hash = this.runtime.getIdentityHash(this.handle);
+            this.identityHash = hash;
+        }
+        return hash;
     }
 }
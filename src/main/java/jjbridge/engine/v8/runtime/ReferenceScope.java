@@ -0,0 +1,135 @@
+package jjbridge.engine.v8.runtime;
+
+import jjbridge.api.runtime.JSReference;
+
+import java.util.Arrays;
+
+/**
+ * A scope releasing all the references created inside it as soon as it is closed.
+ * <p>References are normally released once the garbage collector reclaims them, so their native memory can outlive
+ * them for long. A scope releases the references created in it by the same thread deterministically, in a single native
+ * call, and without tracking them through the reference monitor. The usage is the following:</p>
+ * <pre>{@code
+ * Reference result;
+ * try (ReferenceScope scope = runtime.openScope())
+ * {
+ *     JSObject<Reference> request = runtime.resolveReference(runtime.executeScript("parse(input)"));
+ *     // ... any number of temporary references ...
+ *     result = scope.escape(request.get("response"));
+ * }
+ * }</pre>
+ * <p>References which are not escaped <strong>must not be used once the scope is closed</strong>. Scopes can be nested:
+ * escaped references are moved to the enclosing scope, if any, and are otherwise left to the garbage collector.
+ * Scopes belong to the thread opening them and must be closed in reverse order of opening.</p>
+ * */
+public final class ReferenceScope implements AutoCloseable
+{
+    private final Runtime runtime;
+    private final ReferenceScope parent;
+    private final Thread owner;
+    private long[] handles;
+    private int size;
+    private boolean closed;
+
+    ReferenceScope(Runtime runtime, ReferenceScope parent)
+    {
+        this.runtime = runtime;
+        this.parent = parent;
+        this.owner = NativeCallDispatcher.caller();
+        this.handles = new long[16];
+        this.size = 0;
+        this.closed = false;
+    }
+
+    void add(long handle)
+    {
+        if (this.size == this.handles.length)
+        {
+            this.handles = Arrays.copyOf(this.handles, this.size * 2);
+        }
+        this.handles[this.size++] = handle;
+    }
+
+    /**
+     * Counts the references held by this scope.
+     *
+     * @return the number of references which will be released when the scope is closed
+     * */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Moves a reference out of this scope, so that it remains valid after the scope is closed.
+     *
+     * @param reference a reference created inside this scope
+     * @return the same reference
+     * @throws IllegalArgumentException if the reference does not belong to this scope
+     * @throws IllegalStateException if the scope is closed or used by a thread other than its owner
+     * */
+    public <R extends JSReference> R escape(R reference)
+    {
+        checkOwner();
+        Reference escaped = (Reference) reference;
+        // Escaped references are usually among the last ones created
+        for (int i = this.size - 1; i >= 0; i--)
+        {
+            if (this.handles[i] == escaped.handle)
+            {
+                System.arraycopy(this.handles, i + 1, this.handles, i, this.size - i - 1);
+                this.size--;
+                if (this.parent == null)
+                {
+                    this.runtime.trackWithMonitor(escaped);
+                }
+                else
+                {
+                    this.parent.add(escaped.handle);
+                }
+                return reference;
+            }
+        }
+        if (this.runtime.isCanonical(escaped))
+        {
+            // Canonical references are never released, so they need no escaping
+            return reference;
+        }
+        throw new IllegalArgumentException("The reference does not belong to this scope");
+    }
+
+    /**
+     * Releases all the references held by this scope.
+     *
+     * @throws IllegalStateException if the scope is used by a thread other than its owner, or if an inner scope is
+     *                               still open
+     * */
+    @Override
+    public void close()
+    {
+        if (this.closed)
+        {
+            return;
+        }
+        checkOwner();
+        this.runtime.exitScope(this, this.parent);
+        this.closed = true;
+        if (this.size > 0)
+        {
+            this.runtime.releaseScopedReferences(Arrays.copyOf(this.handles, this.size));
+            this.size = 0;
+        }
+    }
+
+    private void checkOwner()
+    {
+        if (this.closed)
+        {
+            throw new IllegalStateException("The scope is closed");
+        }
+        if (NativeCallDispatcher.caller() != this.owner)
+        {
+            throw new IllegalStateException("The scope belongs to another thread");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package jjbridge.engine.v8.runtime;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the handles of reclaimed references, so that they can be released in batches.
+ * <p>Handles are added by the reference monitor without taking any lock; they are drained by the owner of the runtime
+ * at its safe points, or when the runtime is closed.</p>
+ * */
+final class ReleaseQueue
+{
+    private static final long[] EMPTY = new long[0];
+
+    private final ConcurrentLinkedQueue<Long> handles;
+    private final AtomicInteger size;
+
+    ReleaseQueue()
+    {
+        this.handles = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger();
+    }
+
+    /**
+     * Adds a handle to the queue.
+     *
+     * @param handle the handle to release
+     * @return the number of handles in the queue, including the new one
+     * */
+    int add(long handle)
+    {
+        this.handles.add(handle);
+        return this.size.incrementAndGet();
+    }
+
+    boolean isEmpty()
+    {
+        return this.size.get() == 0;
+    }
+
+    /**
+     * Removes the queued handles.
+     * <p>Concurrent drains get disjoint sets of handles.</p>
+     *
+     * @return the handles removed from the queue
+     * */
+    long[] drain()
+    {
+        int expected = this.size.get();
+        if (expected == 0)
+        {
+            return EMPTY;
+        }
+
+        long[] result = new long[expected];
+        int count = 0;
+        Long handle;
+        while (count < expected && (handle = this.handles.poll()) != null)
+        {
+            result[count++] = handle;
+        }
+        this.size.addAndGet(-count);
+        return count == expected ? result : Arrays.copyOf(result, count);
+    }
+}
@@ -1,7 +1,9 @@
 package jjbridge.engine.v8.runtime;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jjbridge.api.runtime.ExecutionException;
 import jjbridge.api.runtime.JSBaseRuntime;
+import jjbridge.api.runtime.JSReference;
 import jjbridge.api.runtime.JSRuntime;
 import jjbridge.api.value.JSArray;
 import jjbridge.api.value.JSBoolean;
@@ -16,35 +18,136 @@ import jjbridge.api.value.JSType;
 import jjbridge.api.value.JSUndefined;
 import jjbridge.api.value.JSValue;
 import jjbridge.api.value.strategy.FunctionCallback;
+import jjbridge.api.value.strategy.FunctionInvoker;
+import jjbridge.api.value.strategy.FunctionSetter;
+import jjbridge.api.value.strategy.ValueSetter;
 import jjbridge.engine.utils.Cache;
 import jjbridge.engine.utils.ReferenceMonitor;
+import jjbridge.engine.utils.TimerWheel;
 import jjbridge.engine.v8.V8;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
 /**
  * The implementation of the {@link JSRuntime} using V8 runtime.
  */
 public class Runtime extends JSBaseRuntime<Reference>
 {
+    // The name given to scripts by JSBaseRuntime.executeScript(String)
+    private static final String SCRIPT_NAME = "script";
+
     private final V8 v8;
+    private final Runtime root;
+    private final Set<Runtime> contexts;
     private final long runtimeHandle;
+    private final NativeCallDispatcher dispatcher;
     private final AccessorsFactory accessorsFactory;
     private final ReferenceMonitor<Reference> referenceMonitor;
+    private final ReleaseQueue pendingReleases;
+    private final ReadWriteLock releaseLock;
+    // The innermost scope of each thread, looked up through the caller of native calls, which create the references
+    private final Map<Thread, ReferenceScope> currentScopes;
+    // A single clean up action is shared by all the references of the isolate: it holds no reference to them
+    private final LongConsumer releaser;
+    private final Reference undefinedReference;
+    private final Reference nullReference;
+    private final Reference globalReference;
+    private volatile EventLoop eventLoop;
 
     @SuppressWarnings("checkstyle:MissingJavadocMethod")
     @SuppressFBWarnings(value = "SC_START_IN_CTOR",
             justification = "This class should be final but it is not due to mocking in tests")
     public Runtime(V8 v8, ReferenceMonitor<Reference> referenceMonitor,
-                   Cache<FunctionCallback<Reference>> functionsCache,
-                   Cache<ReferenceTypeGetter> typeGetterCache, Cache<EqualityChecker> equalityCheckerCache,
-                   Cache<Object> externalCache)
+                   Cache<FunctionCallback<Reference>> functionsCache, Cache<Object> externalCache)
     {
         super();
         this.v8 = v8;
-        this.runtimeHandle = this.v8.createRuntime(this, functionsCache, typeGetterCache, equalityCheckerCache,
-                externalCache);
-        this.accessorsFactory = new AccessorsFactory(this.v8, this.runtimeHandle);
+        this.root = this;
+        this.contexts = ConcurrentHashMap.newKeySet();
+        this.runtimeHandle = this.v8.createRuntime(this, functionsCache, externalCache);
+        this.dispatcher = new NativeCallDispatcher();
+        this.accessorsFactory = new AccessorsFactory(this.v8, this.runtimeHandle, this.dispatcher);
         this.referenceMonitor = referenceMonitor;
         this.referenceMonitor.start();
+        this.pendingReleases = new ReleaseQueue();
+        this.releaseLock = new ReentrantReadWriteLock();
+        this.currentScopes = new ConcurrentHashMap<>();
+        this.releaser = this::releaseReference;
+
+        Reference[] canonical = this.createCanonicalReferences();
+        this.undefinedReference = canonical[0];
+        this.nullReference = canonical[1];
+        this.globalReference = canonical[2];
+    }
+
+    private Runtime(Runtime parent)
+    {
+        super();
+        this.v8 = parent.v8;
+        this.root = parent.root;
+        this.contexts = null;
+        this.runtimeHandle = this.v8.createContext(parent.runtimeHandle, this, new Cache<>(), new Cache<>());
+        // Calls to contexts sharing an isolate must be serialized together
+        this.dispatcher = parent.dispatcher;
+        this.accessorsFactory = new AccessorsFactory(this.v8, this.runtimeHandle, this.dispatcher);
+        this.referenceMonitor = parent.referenceMonitor;
+        this.pendingReleases = parent.pendingReleases;
+        this.releaseLock = parent.releaseLock;
+        this.currentScopes = new ConcurrentHashMap<>();
+        this.releaser = parent.releaser;
+
+        Reference[] canonical = this.createCanonicalReferences();
+        this.undefinedReference = canonical[0];
+        this.nullReference = canonical[1];
+        this.globalReference = canonical[2];
+    }
+
+    private Reference[] createCanonicalReferences()
+    {
+        // Native results equal to these values are mapped to the same references for the lifetime of the runtime
+        return this.dispatcher.access(() -> this.v8.createCanonicalReferences(this.runtimeHandle));
+    }
+
+    boolean isCanonical(Reference reference)
+    {
+        long handle = reference.handle;
+        return handle == this.undefinedReference.handle || handle == this.nullReference.handle
+                || handle == this.globalReference.handle;
+    }
+
+    /**
+     * Creates a new context inside the isolate of this runtime.
+     * <p>The new context is a runtime on its own, with its global object and references, but it shares the heap, the
+     * compiled code and the garbage collector of this runtime. Hence it is much cheaper to create and dispose than a
+     * new runtime, at the cost of weaker isolation: contexts of the same isolate cannot run concurrently and a context
+     * exhausting the heap affects all the others.</p>
+     * <p>References must not be passed between different contexts. Closing a runtime also closes all the contexts
+     * created from it.</p>
+     *
+     * @return the new context
+     * */
+    public Runtime newContext()
+    {
+        if (this.isClosed() || this.root.isClosed())
+        {
+            throw new IllegalStateException("The runtime is closed");
+        }
+        Runtime context = new Runtime(this);
+        this.root.contexts.add(context);
+        return context;
     }
 
     public long getNativeHandle()
@@ -52,17 +155,878 @@ public class Runtime extends JSBaseRuntime<Reference>
         return runtimeHandle;
     }
 
+    /**
+     * Reads the current heap usage of the isolate backing this runtime.
+     *
+     * @return a snapshot of the heap statistics
+     * */
+    public HeapStatistics getHeapStatistics()
+    {
+        return this.dispatcher.access(() -> this.v8.getHeapStatistics(this.runtimeHandle));
+    }
+
+    /**
+     * Forces a full garbage collection of the isolate, which is shared with the contexts of this runtime.
+     * */
+    void collectGarbage()
+    {
+        this.checkRuntimeState();
+        this.dispatcher.access(() -> this.v8.collectGarbage(this.runtimeHandle));
+    }
+
+    /**
+     * Reads the allocation counters of the native handles backing the references of this runtime.
+     * <p>Handles are shared by all the contexts of the same isolate. References waiting in the release queue are
+     * still counted as live.</p>
+     *
+     * @return a snapshot of the handle statistics
+     * */
+    public HandleStatistics getHandleStatistics()
+    {
+        return this.dispatcher.access(() -> this.v8.getHandleStatistics(this.runtimeHandle));
+    }
+
+    /**
+     * Serializes a value of this runtime with the structured clone algorithm.
+     * <p>The returned value holds native memory and must be closed once it is no longer needed.</p>
+     *
+     * @param value the value to serialize
+     * @return the serialized value
+     * @throws jjbridge.api.runtime.ExecutionException if the value (or any value it refers to) cannot be cloned
+     * */
+    public SerializedValue serialize(Reference value)
+    {
+        if (this.isClosed())
+        {
+            throw new RuntimeException("Runtime is closed.");
+        }
+        return new SerializedValue(this.v8,
+                this.dispatcher.execute(() -> this.v8.serializeValue(this.runtimeHandle, value.handle)));
+    }
+
+    /**
+     * Creates a new value in this runtime from a serialized value, which can come from any runtime.
+     * <p>The serialized value is not closed, so it can be deserialized more than once.</p>
+     *
+     * @param value the serialized value
+     * @return a reference to the deserialized value
+     * @throws jjbridge.api.runtime.ExecutionException if the serialized value is malformed
+     * */
+    public Reference deserialize(SerializedValue value)
+    {
+        if (this.isClosed())
+        {
+            throw new RuntimeException("Runtime is closed.");
+        }
+        // The native memory of the serialized value is not freed while it is read
+        try
+        {
+            ByteBuffer buffer = value.acquire();
+            return this.dispatcher.execute(() -> this.v8.deserializeValue(this.runtimeHandle, buffer));
+        }
+        finally
+        {
+            value.release();
+        }
+    }
+
+    /**
+     * Copies a value of this runtime into another runtime with the structured clone algorithm.
+     * <p>The value is serialized into native memory, deserialized by the target runtime and then released, without
+     * ever being materialized in Java.</p>
+     *
+     * @param value the value to copy
+     * @param target the runtime receiving the copy
+     * @return a reference to the copy, owned by the target runtime
+     * @throws jjbridge.api.runtime.ExecutionException if the value cannot be cloned
+     * */
+    public Reference postMessage(Reference value, Runtime target)
+    {
+        try (SerializedValue message = this.serialize(value))
+        {
+            return target.deserialize(message);
+        }
+    }
+
+    /**
+     * Executes a script and discards its result.
+     * <p>This and the other {@code eval} methods are shortcuts for scripts whose result is only needed as a Java
+     * value: compiling, running and converting the result take a single native call, and no reference is created.</p>
+     *
+     * @param script the script to execute
+     * @see #evalVoid(String, String)
+     * */
+    public void evalVoid(String script)
+    {
+        evalVoid(SCRIPT_NAME, script);
+    }
+
+    /**
+     * Executes a script and discards its result.
+     *
+     * @param fileName the name of the script
+     * @param script the script to execute
+     * */
+    public void evalVoid(String fileName, String script)
+    {
+        if (this.evaluatesDirectly())
+        {
+            this.v8.executeScriptIgnoringResult(this.runtimeHandle, fileName, script);
+            return;
+        }
+        evaluate(() ->
+        {
+            this.v8.executeScriptIgnoringResult(this.runtimeHandle, fileName, script);
+            return null;
+        });
+    }
+
+    /**
+     * Executes a script and converts its result to a boolean, as the JavaScript {@code Boolean} function does.
+     *
+     * @param script the script to execute
+     * @return the result of the script
+     * @see #evalVoid(String)
+     * */
+    public boolean evalBoolean(String script)
+    {
+        return evalBoolean(SCRIPT_NAME, script);
+    }
+
+    /**
+     * Executes a script and converts its result to a boolean, as the JavaScript {@code Boolean} function does.
+     *
+     * @param fileName the name of the script
+     * @param script the script to execute
+     * @return the result of the script
+     * */
+    public boolean evalBoolean(String fileName, String script)
+    {
+        return this.evaluatesDirectly() ? this.v8.executeScriptAsBoolean(this.runtimeHandle, fileName, script)
+                : evaluate(() -> this.v8.executeScriptAsBoolean(this.runtimeHandle, fileName, script));
+    }
+
+    /**
+     * Executes a script and converts its result to a 32-bit integer, as the JavaScript {@code |0} operator does.
+     *
+     * @param script the script to execute
+     * @return the result of the script
+     * @see #evalVoid(String)
+     * */
+    public int evalInt(String script)
+    {
+        return evalInt(SCRIPT_NAME, script);
+    }
+
+    /**
+     * Executes a script and converts its result to a 32-bit integer, as the JavaScript {@code |0} operator does.
+     *
+     * @param fileName the name of the script
+     * @param script the script to execute
+     * @return the result of the script
+     * */
+    public int evalInt(String fileName, String script)
+    {
+        return this.evaluatesDirectly() ? this.v8.executeScriptAsInt(this.runtimeHandle, fileName, script)
+                : evaluate(() -> this.v8.executeScriptAsInt(this.runtimeHandle, fileName, script));
+    }
+
+    /**
+     * Executes a script and converts its result to a number, as the JavaScript {@code Number} function does.
+     *
+     * @param script the script to execute
+     * @return the result of the script
+     * @see #evalVoid(String)
+     * */
+    public double evalDouble(String script)
+    {
+        return evalDouble(SCRIPT_NAME, script);
+    }
+
+    /**
+     * Executes a script and converts its result to a number, as the JavaScript {@code Number} function does.
+     *
+     * @param fileName the name of the script
+     * @param script the script to execute
+     * @return the result of the script
+     * */
+    public double evalDouble(String fileName, String script)
+    {
+        return this.evaluatesDirectly() ? this.v8.executeScriptAsDouble(this.runtimeHandle, fileName, script)
+                : evaluate(() -> this.v8.executeScriptAsDouble(this.runtimeHandle, fileName, script));
+    }
+
+    /**
+     * Executes a script and converts its result to a string, as the JavaScript {@code String} function does.
+     *
+     * @param script the script to execute
+     * @return the result of the script
+     * @see #evalVoid(String)
+     * */
+    public String evalString(String script)
+    {
+        return evalString(SCRIPT_NAME, script);
+    }
+
+    /**
+     * Executes a script and converts its result to a string, as the JavaScript {@code String} function does.
+     *
+     * @param fileName the name of the script
+     * @param script the script to execute
+     * @return the result of the script
+     * */
+    public String evalString(String fileName, String script)
+    {
+        return this.evaluatesDirectly() ? this.v8.executeScriptAsString(this.runtimeHandle, fileName, script)
+                : evaluate(() -> this.v8.executeScriptAsString(this.runtimeHandle, fileName, script));
+    }
+
+    /*
+     Scripts release the pending references first. When the dispatcher would run them on the calling thread, this is
+     done here and the caller calls native code directly, sparing the lambda and the boxing of the result.
+    */
+    private boolean evaluatesDirectly()
+    {
+        if (!this.accessesDirectly())
+        {
+            return false;
+        }
+        this.root.releasePendingReferences();
+        return true;
+    }
+
+    private <T> T evaluate(Supplier<T> call)
+    {
+        return this.dispatcher.execute(() ->
+        {
+            this.root.releasePendingReferences();
+            return call.get();
+        });
+    }
+
+    /**
+     * Executes a script, terminating it if it does not complete within the specified timeout.
+     *
+     * @param script the script to execute
+     * @param timeout the maximum execution time
+     * @param unit the unit of {@code timeout}
+     * @return the result of the script
+     * @throws TimeoutException if the script is terminated because of the timeout
+     * @see #executeScript(String, String, long, TimeUnit)
+     * */
+    public JSReference executeScript(String script, long timeout, TimeUnit unit)
+    {
+        return this.withDeadline(timeout, unit, () -> this.executeScript(script));
+    }
+
+    /**
+     * Executes a script, terminating it if it does not complete within the specified timeout.
+     * <p>Deadlines are enforced by a watchdog shared by all runtimes, which terminates the execution in the isolate of
+     * this runtime: contexts created with {@link #newContext()} share the isolate, so a deadline expiring while one of
+     * them is running a script terminates that script. Once the call returns, the runtime can be used again.</p>
+     *
+     * @param fileName the name of the script
+     * @param script the script to execute
+     * @param timeout the maximum execution time
+     * @param unit the unit of {@code timeout}
+     * @return the result of the script
+     * @throws TimeoutException if the script is terminated because of the timeout
+     * */
+    public JSReference executeScript(String fileName, String script, long timeout, TimeUnit unit)
+    {
+        return this.withDeadline(timeout, unit, () -> this.executeScript(fileName, script));
+    }
+
+    /**
+     * Invokes a function, terminating it if it does not complete within the specified timeout.
+     *
+     * @param function the function to invoke
+     * @param receiver the value of {@code this} inside the function
+     * @param timeout the maximum execution time
+     * @param unit the unit of {@code timeout}
+     * @param args the arguments of the function
+     * @return the result of the function
+     * @throws TimeoutException if the function is terminated because of the timeout
+     * @see #executeScript(String, String, long, TimeUnit)
+     * */
+    public Reference invoke(Reference function, Reference receiver, long timeout, TimeUnit unit, Reference... args)
+    {
+        FunctionInvoker<Reference> invoker = this.accessorsFactory.functionInvoker(function.handle);
+        return this.withDeadline(timeout, unit, () -> invoker.invokeFunction(receiver, args));
+    }
+
+    // The runtime which owns the isolate shared by this runtime and its contexts
+    Runtime getRoot()
+    {
+        return this.root;
+    }
+
+    void requestInterrupt()
+    {
+        this.v8.requestInterrupt(this.runtimeHandle);
+    }
+
+    private <T> T withDeadline(long timeout, TimeUnit unit, Supplier<T> call)
+    {
+        TimerWheel.Timeout deadline = Watchdog.wheel.schedule(() -> this.v8.terminateExecution(this.runtimeHandle),
+                timeout, unit);
+        try
+        {
+            return call.get();
+        }
+        catch (ExecutionException e)
+        {
+            if (deadline.cancel())
+            {
+                throw e;
+            }
+            throw new TimeoutException("Execution did not complete within " + unit.toMillis(timeout) + " ms.", e);
+        }
+        finally
+        {
+            if (!deadline.cancel())
+            {
+                // A termination hitting the call is cancelled by the native call itself, but one requested right after
+                // the call completed is still pending
+                this.dispatcher.access(() -> this.v8.cancelTerminateExecution(this.runtimeHandle));
+            }
+        }
+    }
+
+    /**
+     * Binds this runtime to a dedicated event loop thread.
+     * <p>Once bound, the asynchronous methods of this runtime can be used: their operations are queued and run on the
+     * event loop in batches, under a single acquisition of the isolate lock. Pending microtasks are run after each
+     * batch. Synchronous methods can still be called from any thread, but they wait for the batch currently running
+     * on the event loop to complete.</p>
+     * */
+    public synchronized void startEventLoop()
+    {
+        if (this.eventLoop != null)
+        {
+            throw new IllegalStateException("The runtime is already bound to an event loop");
+        }
+        EventLoop loop = new EventLoop(this.v8, this.runtimeHandle, this.root::releasePendingReferences);
+        loop.start();
+        this.eventLoop = loop;
+    }
+
+    private EventLoop requireEventLoop()
+    {
+        EventLoop loop = this.eventLoop;
+        if (loop == null)
+        {
+            throw new IllegalStateException("The runtime is not bound to an event loop");
+        }
+        return loop;
+    }
+
+    /**
+     * Runs an operation on the event loop of this runtime.
+     * <p>The operation can freely use this runtime and the values it resolves: it runs on the event loop thread, which
+     * already holds the isolate lock.</p>
+     *
+     * @param operation the operation to run
+     * @return a future completed with the result of the operation
+     * @throws IllegalStateException if the runtime is not bound to an event loop
+     * */
+    public <T> CompletableFuture<T> submit(Supplier<T> operation)
+    {
+        return requireEventLoop().submit(operation);
+    }
+
+    /**
+     * Runs an operation on the event loop of this runtime once the specified delay has elapsed.
+     *
+     * @param operation the operation to run
+     * @param delay the delay
+     * @param unit the unit of {@code delay}
+     * @return a future completed when the operation has run; cancelling it prevents the operation from running
+     * @throws IllegalStateException if the runtime is not bound to an event loop
+     * */
+    public CompletableFuture<Void> schedule(Runnable operation, long delay, TimeUnit unit)
+    {
+        return requireEventLoop().schedule(operation, delay, unit);
+    }
+
+    /**
+     * Asynchronous version of {@link #executeScript(String)}.
+     *
+     * @param script the script to execute
+     * @return a future completed with the result of the script
+     * @throws IllegalStateException if the runtime is not bound to an event loop
+     * */
+    public CompletableFuture<JSReference> executeScriptAsync(String script)
+    {
+        return submit(() -> this.executeScript(script));
+    }
+
+    /**
+     * Asynchronous version of {@link #executeScript(String, String)}.
+     *
+     * @param fileName the name of the script
+     * @param script the script to execute
+     * @return a future completed with the result of the script
+     * @throws IllegalStateException if the runtime is not bound to an event loop
+     * */
+    public CompletableFuture<JSReference> executeScriptAsync(String fileName, String script)
+    {
+        return submit(() -> this.executeScript(fileName, script));
+    }
+
+    /**
+     * Invokes a function on the event loop of this runtime.
+     *
+     * @param function the function to invoke
+     * @param receiver the value of {@code this} inside the function
+     * @param args the arguments of the function
+     * @return a future completed with the result of the function
+     * @throws IllegalStateException if the runtime is not bound to an event loop
+     * */
+    public CompletableFuture<Reference> invokeAsync(Reference function, Reference receiver, Reference... args)
+    {
+        return submit(() -> this.accessorsFactory.functionInvoker(function.handle).invokeFunction(receiver, args));
+    }
+
+    /**
+     * Reads a property of an object on the event loop of this runtime.
+     *
+     * @param object the object
+     * @param name the name of the property
+     * @return a future completed with the value of the property
+     * @throws IllegalStateException if the runtime is not bound to an event loop
+     * */
+    public CompletableFuture<Reference> getPropertyAsync(Reference object, String name)
+    {
+        return submit(() -> this.accessorsFactory.propertyGetter(object.handle).getPropertyByName(name));
+    }
+
+    /**
+     * Writes a property of an object on the event loop of this runtime.
+     *
+     * @param object the object
+     * @param name the name of the property
+     * @param value the new value of the property
+     * @return a future completed once the property has been written
+     * @throws IllegalStateException if the runtime is not bound to an event loop
+     * */
+    public CompletableFuture<Void> setPropertyAsync(Reference object, String name, Reference value)
+    {
+        return submit(() ->
+        {
+            this.accessorsFactory.propertySetter(object.handle).setPropertyByName(name, value);
+            return null;
+        });
+    }
+
+    /**
+     * Reads the value of a reference as a boolean, as the JavaScript {@code Boolean} function does.
+     * <p>This and the other primitive accessors read or write the value held by a reference without resolving it: on
+     * platform threads they perform the native call directly, with neither wrappers nor boxing.</p>
+     *
+     * @param reference the reference to read
+     * @return the value of the reference
+     * */
+    public boolean getBoolean(Reference reference)
+    {
+        return this.accessesDirectly() ? this.v8.getBooleanValue(this.runtimeHandle, reference.handle)
+                : this.dispatcher.access(() -> this.v8.getBooleanValue(this.runtimeHandle, reference.handle));
+    }
+
+    /**
+     * Replaces the value of a reference with a boolean.
+     *
+     * @param reference the reference to write
+     * @param value the new value
+     * @throws UnsupportedOperationException if the reference is a canonical reference
+     * @see #getBoolean(Reference)
+     * */
+    public void setBoolean(Reference reference, boolean value)
+    {
+        if (this.writesDirectly(reference))
+        {
+            this.v8.setBooleanValue(this.runtimeHandle, reference.handle, value);
+        }
+        else
+        {
+            this.dispatcher.access(() -> this.v8.setBooleanValue(this.runtimeHandle, reference.handle, value));
+        }
+        reference.valueReplaced(JSType.Boolean);
+    }
+
+    /**
+     * Reads the value of a reference as a 32-bit integer, as the JavaScript {@code |0} operator does.
+     *
+     * @param reference the reference to read
+     * @return the value of the reference
+     * @throws jjbridge.api.runtime.ExecutionException if the conversion throws
+     * @see #getBoolean(Reference)
+     * */
+    public int getInt(Reference reference)
+    {
+        return this.accessesDirectly() ? this.v8.getIntValue(this.runtimeHandle, reference.handle)
+                : this.dispatcher.execute(() -> this.v8.getIntValue(this.runtimeHandle, reference.handle));
+    }
+
+    /**
+     * Replaces the value of a reference with a number.
+     *
+     * @param reference the reference to write
+     * @param value the new value
+     * @throws UnsupportedOperationException if the reference is a canonical reference
+     * @see #getBoolean(Reference)
+     * */
+    public void setInt(Reference reference, int value)
+    {
+        if (this.writesDirectly(reference))
+        {
+            this.v8.setIntValue(this.runtimeHandle, reference.handle, value);
+        }
+        else
+        {
+            this.dispatcher.access(() -> this.v8.setIntValue(this.runtimeHandle, reference.handle, value));
+        }
+        reference.valueReplaced(JSType.Number);
+    }
+
+    /**
+     * Reads the value of a reference as a number, as the JavaScript {@code Number} function does.
+     *
+     * @param reference the reference to read
+     * @return the value of the reference
+     * @throws jjbridge.api.runtime.ExecutionException if the conversion throws
+     * @see #getBoolean(Reference)
+     * */
+    public double getDouble(Reference reference)
+    {
+        return this.accessesDirectly() ? this.v8.getDoubleValue(this.runtimeHandle, reference.handle)
+                : this.dispatcher.execute(() -> this.v8.getDoubleValue(this.runtimeHandle, reference.handle));
+    }
+
+    /**
+     * Replaces the value of a reference with a number.
+     *
+     * @param reference the reference to write
+     * @param value the new value
+     * @throws UnsupportedOperationException if the reference is a canonical reference
+     * @see #getBoolean(Reference)
+     * */
+    public void setDouble(Reference reference, double value)
+    {
+        if (this.writesDirectly(reference))
+        {
+            this.v8.setDoubleValue(this.runtimeHandle, reference.handle, value);
+        }
+        else
+        {
+            this.dispatcher.access(() -> this.v8.setDoubleValue(this.runtimeHandle, reference.handle, value));
+        }
+        reference.valueReplaced(JSType.Number);
+    }
+
+    /**
+     * Reads the value of a reference as a string, as the JavaScript {@code String} function does.
+     *
+     * @param reference the reference to read
+     * @return the value of the reference
+     * @throws jjbridge.api.runtime.ExecutionException if the conversion throws
+     * @see #getBoolean(Reference)
+     * */
+    public String getString(Reference reference)
+    {
+        return this.accessesDirectly() ? this.v8.getStringValue(this.runtimeHandle, reference.handle)
+                : this.dispatcher.execute(() -> this.v8.getStringValue(this.runtimeHandle, reference.handle));
+    }
+
+    /**
+     * Replaces the value of a reference with a string.
+     *
+     * @param reference the reference to write
+     * @param value the new value
+     * @throws UnsupportedOperationException if the reference is a canonical reference
+     * @see #getBoolean(Reference)
+     * */
+    public void setString(Reference reference, String value)
+    {
+        if (this.writesDirectly(reference))
+        {
+            this.v8.setStringValue(this.runtimeHandle, reference.handle, value);
+        }
+        else
+        {
+            this.dispatcher.access(() -> this.v8.setStringValue(this.runtimeHandle, reference.handle, value));
+        }
+        reference.valueReplaced(JSType.String);
+    }
+
+    // Checks the runtime state, and tells whether a short call can be made directly, without a lambda or boxing
+    private boolean accessesDirectly()
+    {
+        this.checkRuntimeState();
+        return this.dispatcher.callsDirectly();
+    }
+
+    private boolean writesDirectly(Reference reference)
+    {
+        this.checkRuntimeState();
+        if (isCanonical(reference))
+        {
+            throw new UnsupportedOperationException("Cannot modify a canonical reference");
+        }
+        return this.dispatcher.callsDirectly();
+    }
+
+    /**
+     * Reads all the elements of an array as numbers, as the JavaScript {@code Number} function does.
+     * <p>This and the other bulk readers read the whole array in a single native call, instead of one call per
+     * element.</p>
+     *
+     * @param array the reference to the array
+     * @return the elements of the array
+     * @throws IllegalArgumentException if the reference is not an array
+     * @throws jjbridge.api.runtime.ExecutionException if the conversion of an element throws
+     * */
+    public double[] getArrayAsDoubles(Reference array)
+    {
+        checkArray(array);
+        return this.dispatcher.execute(() -> this.v8.getArrayAsDoubles(this.runtimeHandle, array.handle));
+    }
+
+    /**
+     * Reads all the elements of an array as 32-bit integers, as the JavaScript {@code |0} operator does.
+     *
+     * @param array the reference to the array
+     * @return the elements of the array
+     * @throws IllegalArgumentException if the reference is not an array
+     * @throws jjbridge.api.runtime.ExecutionException if the conversion of an element throws
+     * @see #getArrayAsDoubles(Reference)
+     * */
+    public int[] getArrayAsInts(Reference array)
+    {
+        checkArray(array);
+        return this.dispatcher.execute(() -> this.v8.getArrayAsInts(this.runtimeHandle, array.handle));
+    }
+
+    /**
+     * Reads all the elements of an array as 64-bit integers.
+     * <p>Numbers are truncated towards zero, while BigInts wrap around as {@code BigInt.asIntN(64, value)} does.</p>
+     *
+     * @param array the reference to the array
+     * @return the elements of the array
+     * @throws IllegalArgumentException if the reference is not an array
+     * @throws jjbridge.api.runtime.ExecutionException if the conversion of an element throws
+     * @see #getArrayAsDoubles(Reference)
+     * */
+    public long[] getArrayAsLongs(Reference array)
+    {
+        checkArray(array);
+        return this.dispatcher.execute(() -> this.v8.getArrayAsLongs(this.runtimeHandle, array.handle));
+    }
+
+    /**
+     * Reads all the elements of an array as strings, as the JavaScript {@code String} function does.
+     *
+     * @param array the reference to the array
+     * @return the elements of the array
+     * @throws IllegalArgumentException if the reference is not an array
+     * @throws jjbridge.api.runtime.ExecutionException if the conversion of an element throws
+     * @see #getArrayAsDoubles(Reference)
+     * */
+    public String[] getArrayAsStrings(Reference array)
+    {
+        checkArray(array);
+        return this.dispatcher.execute(() -> this.v8.getArrayAsStrings(this.runtimeHandle, array.handle));
+    }
+
+    /**
+     * Reads a range of the elements of an array as references.
+     *
+     * @param array the reference to the array
+     * @param from the position of the first element to read
+     * @param to the position following the last element to read; positions past the end of the array are ignored
+     * @return the elements of the array in the range
+     * @throws IllegalArgumentException if the reference is not an array
+     * @throws IndexOutOfBoundsException if {@code from} is negative or greater than {@code to}
+     * @see #getArrayAsDoubles(Reference)
+     * */
+    public Reference[] getArrayElements(Reference array, int from, int to)
+    {
+        checkArray(array);
+        if (from < 0 || from > to)
+        {
+            throw new IndexOutOfBoundsException("Invalid range [" + from + ", " + to + ")");
+        }
+        return this.dispatcher.execute(() -> this.v8.getArrayElements(this.runtimeHandle, array.handle, from, to));
+    }
+
+    /**
+     * Creates an array of numbers.
+     * <p>This and the other bulk writers create or fill the whole array in a single native call, instead of one call
+     * per element.</p>
+     *
+     * @param values the elements of the array
+     * @return a reference to the new array
+     * */
+    public Reference newArrayFromDoubles(double[] values)
+    {
+        this.checkRuntimeState();
+        return this.dispatcher.access(() -> this.v8.newArrayFromDoubles(this.runtimeHandle, values));
+    }
+
+    /**
+     * Creates an array of strings, where {@code null} elements become {@code null} in JavaScript.
+     *
+     * @param values the elements of the array
+     * @return a reference to the new array
+     * @see #newArrayFromDoubles(double[])
+     * */
+    public Reference newArrayFromStrings(String[] values)
+    {
+        this.checkRuntimeState();
+        return this.dispatcher.access(() -> this.v8.newArrayFromStrings(this.runtimeHandle, values));
+    }
+
+    /**
+     * Creates an array holding the values of the given references.
+     *
+     * @param values the elements of the array
+     * @return a reference to the new array
+     * @see #newArrayFromDoubles(double[])
+     * */
+    public Reference newArrayFromReferences(Reference... values)
+    {
+        this.checkRuntimeState();
+        long[] handles = new long[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            handles[i] = values[i].handle;
+        }
+        return this.dispatcher.access(() -> this.v8.newArrayFromReferences(this.runtimeHandle, handles));
+    }
+
+    /**
+     * Stores numbers in consecutive positions of an array, growing it if needed.
+     *
+     * @param array the reference to the array
+     * @param offset the position of the first number
+     * @param values the numbers to store
+     * @throws IllegalArgumentException if the reference is not an array
+     * @throws IndexOutOfBoundsException if {@code offset} is negative, or if the last position does not fit in an
+     *     {@code int}
+     * @throws jjbridge.api.runtime.ExecutionException if storing an element throws
+     * @see #newArrayFromDoubles(double[])
+     * */
+    public void setArrayRange(Reference array, int offset, double[] values)
+    {
+        checkArray(array);
+        if (offset < 0 || offset > Integer.MAX_VALUE - values.length)
+        {
+            throw new IndexOutOfBoundsException("Invalid offset " + offset + " for " + values.length + " values");
+        }
+        this.dispatcher.execute(() -> this.v8.setArrayRange(this.runtimeHandle, array.handle, offset, values));
+    }
+
+    /**
+     * Creates an {@code ArrayBuffer} using the bytes between the position and the limit of a direct buffer.
+     * <p>No bytes are copied: JavaScript reads and writes the memory of the buffer, which is kept alive until the
+     * {@code ArrayBuffer} is garbage collected. Changing the position or the limit of the buffer afterwards has no
+     * effect on the {@code ArrayBuffer}.</p>
+     *
+     * @param buffer a direct, writable buffer
+     * @return a reference to the new {@code ArrayBuffer}
+     * @throws IllegalArgumentException if the buffer is not direct or is read-only
+     * */
+    public Reference newArrayBuffer(ByteBuffer buffer)
+    {
+        this.checkRuntimeState();
+        if (!buffer.isDirect() || buffer.isReadOnly())
+        {
+            throw new IllegalArgumentException("The buffer must be direct and writable");
+        }
+        int offset = buffer.position();
+        int length = buffer.remaining();
+        return this.dispatcher.access(() -> this.v8.newArrayBuffer(this.runtimeHandle, buffer, offset, length));
+    }
+
+    /**
+     * Gives access to the bytes of an {@code ArrayBuffer}, or to the range of bytes seen by a typed array or a
+     * {@code DataView}.
+     * <p>No bytes are copied: the returned buffer uses the memory of the {@code ArrayBuffer} and is in native byte
+     * order, as typed arrays are. The memory is kept alive until the returned buffer, and any buffer derived from it,
+     * is garbage collected, even if the {@code ArrayBuffer} or the runtime is released first. Detaching the
+     * {@code ArrayBuffer}, for instance by transferring it, does not free the memory either, but JavaScript no longer
+     * sees the changes made through the buffer.</p>
+     *
+     * @param buffer the reference to the {@code ArrayBuffer} or to a view of it
+     * @return a direct buffer over the bytes, or an empty heap buffer if the {@code ArrayBuffer} has no memory, as
+     *     when it is detached
+     * @throws IllegalArgumentException if the reference is neither an {@code ArrayBuffer} nor a view of one, or if it
+     *     holds more than {@link Integer#MAX_VALUE} bytes
+     * */
+    public ByteBuffer getArrayBufferContents(Reference buffer)
+    {
+        this.checkRuntimeState();
+        long[] backingStore = new long[1];
+        ByteBuffer contents = this.dispatcher.access(() -> this.v8.getArrayBufferContents(this.runtimeHandle,
+                buffer.handle, backingStore));
+        if (contents == null)
+        {
+            throw new IllegalArgumentException("The reference is not an ArrayBuffer or a view of one, or it is too "
+                    + "large");
+        }
+        // Empty contents have no memory to keep alive. Otherwise, slices and duplicates keep the buffer reachable, so
+        // the memory is released after all of them.
+        if (backingStore[0] != 0)
+        {
+            BackingStoreMonitor.instance.track(contents, backingStore[0], this.v8::releaseBackingStore);
+        }
+        return contents.order(ByteOrder.nativeOrder());
+    }
+
+    private void checkArray(Reference array)
+    {
+        this.checkRuntimeState();
+        // Native code reads the value as an array without checking it
+        if (array.getActualType() != JSType.Array)
+        {
+            throw new IllegalArgumentException("The reference is not an array");
+        }
+    }
+
     @Override
     protected JSObject<Reference> getGlobalObject()
     {
-        Reference ref = this.v8.globalObjectReference(this.runtimeHandle, this.accessorsFactory.referenceTypeGetter(),
-                this.accessorsFactory.equalityChecker());
-        return resolveReference(ref);
+        return resolveReference(this.globalReference);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>The wrapper resolving a reference as its actual type is cached by the reference, so resolving the same
+     * reference again returns the same wrapper and accessors without allocating them. The cached wrapper is dropped
+     * once the value is replaced with one of another type, and is reclaimed together with the reference.</p>
+     * <p>The cache belongs to the reference, not to the JavaScript value: every new reference to the same value, such
+     * as the one returned by each read of a property, resolves to a new wrapper. Keep and resolve the same reference
+     * to benefit from the cache.</p>
+     * */
     @Override
     @SuppressWarnings("unchecked")
     protected <T extends JSValue> T resolve(Reference reference, JSType asType)
+    {
+        if (asType != reference.cachedActualType())
+        {
+            return newWrapper(reference, asType);
+        }
+        JSValue wrapper = reference.cachedWrapper();
+        if (wrapper == null)
+        {
+            wrapper = newWrapper(reference, asType);
+            reference.cacheWrapper(asType, wrapper);
+        }
+        return (T) wrapper;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends JSValue> T newWrapper(Reference reference, JSType asType)
     {
         switch (asType)
         {
@@ -72,22 +1036,22 @@ public class Runtime extends JSBaseRuntime<Reference>
                 return (T) new JSNull();
             case Boolean:
                 return (T) new JSBoolean(accessorsFactory.booleanGetter(reference.handle),
-                        accessorsFactory.booleanSetter(reference.handle));
+                        replacing(reference, asType, accessorsFactory.booleanSetter(reference.handle)));
             case Number:
                 return (T) new JSNumber(accessorsFactory.doubleGetter(reference.handle),
-                        accessorsFactory.doubleSetter(reference.handle));
+                        replacing(reference, asType, accessorsFactory.doubleSetter(reference.handle)));
             case String:
                 return (T) new JSString(accessorsFactory.stringGetter(reference.handle),
-                        accessorsFactory.stringSetter(reference.handle));
+                        replacing(reference, asType, accessorsFactory.stringSetter(reference.handle)));
             case External:
                 return (T) new JSExternal<>(accessorsFactory.externalGetter(reference.handle),
-                        accessorsFactory.externalSetter(reference.handle));
+                        replacing(reference, asType, accessorsFactory.externalSetter(reference.handle)));
             case Object:
                 return (T) new JSObject<>(accessorsFactory.propertyGetter(reference.handle),
                         accessorsFactory.propertySetter(reference.handle));
             case Date:
                 return (T) new JSDate<>(accessorsFactory.dateGetter(reference.handle),
-                        accessorsFactory.dateSetter(reference.handle),
+                        replacing(reference, asType, accessorsFactory.dateSetter(reference.handle)),
                         accessorsFactory.propertyGetter(reference.handle),
                         accessorsFactory.propertySetter(reference.handle));
             case Array:
@@ -99,17 +1063,91 @@ public class Runtime extends JSBaseRuntime<Reference>
                 return (T) new JSFunction<>(Reference.class, accessorsFactory.propertyGetter(reference.handle),
                         accessorsFactory.propertySetter(reference.handle),
                         accessorsFactory.functionInvoker(reference.handle),
-                        accessorsFactory.functionSetter(reference.handle));
+                        replacingFunction(reference, asType, accessorsFactory.functionSetter(reference.handle)));
             default:
                 throw new UnsupportedOperationException("Cannot resolve reference of type " + asType.name());
         }
     }
 
+    /*
+     Setters replace the value held by the reference with a new one of the type the reference is resolved as, so the
+     cached type is updated and the cached hash is discarded.
+    */
+    private static <V> ValueSetter<V> replacing(Reference reference, JSType asType, ValueSetter<V> setter)
+    {
+        return value ->
+        {
+            setter.setValue(value);
+            reference.valueReplaced(asType);
+        };
+    }
+
+    private static FunctionSetter<Reference> replacingFunction(Reference reference, JSType asType,
+                                                               FunctionSetter<Reference> setter)
+    {
+        return callback ->
+        {
+            setter.setFunction(callback);
+            reference.valueReplaced(asType);
+        };
+    }
+
+    /**
+     * Reads the actual type of many references at once.
+     * <p>The types are cached by the references, so only the ones which are not yet known are read from native code,
+     * in a single call.</p>
+     *
+     * @param references the references
+     * @return the actual types of the references, in the same order
+     * */
+    public JSType[] getActualTypes(Reference... references)
+    {
+        JSType[] types = new JSType[references.length];
+        long[] unknown = new long[references.length];
+        int unknownCount = 0;
+        for (int i = 0; i < references.length; i++)
+        {
+            types[i] = references[i].cachedActualType();
+            if (types[i] == null)
+            {
+                unknown[unknownCount++] = references[i].handle;
+            }
+        }
+        if (unknownCount == 0)
+        {
+            return types;
+        }
+
+        long[] handles = Arrays.copyOf(unknown, unknownCount);
+        JSType[] fetched = this.dispatcher.access(() -> this.v8.getReferenceTypes(this.runtimeHandle, handles));
+        for (int i = 0, j = 0; i < references.length; i++)
+        {
+            if (types[i] == null)
+            {
+                types[i] = fetched[j++];
+                references[i].cacheActualType(types[i]);
+            }
+        }
+        return types;
+    }
+
     @Override
     protected Reference createNewReference(JSType type)
     {
-        Reference reference = this.v8.newValue(this.runtimeHandle, type, this.accessorsFactory.referenceTypeGetter(),
-                this.accessorsFactory.equalityChecker());
+        switch (type)
+        {
+            case Undefined:
+                return this.undefinedReference;
+            case Null:
+                return this.nullReference;
+            default:
+                return this.dispatcher.access(() -> initNewReference(type));
+        }
+    }
+
+    private Reference initNewReference(JSType type)
+    {
+        Reference reference = this.v8.newValue(this.runtimeHandle, type);
 
         switch (type)
         {
@@ -149,22 +1187,135 @@ public class Runtime extends JSBaseRuntime<Reference>
         return reference;
     }
 
-    @SuppressFBWarnings(value = "UPM_UNCALLED_PRIVATE_METHOD", justification = "Called by native code")
-    private void track(Reference reference)
+    /**
+     * Opens a scope releasing the references created in it by the current thread as soon as it is closed.
+     *
+     * @return the new scope, which becomes the innermost scope of the current thread
+     * @see ReferenceScope
+     * */
+    public ReferenceScope openScope()
     {
-        /*
-         We extract handle value here to avoid further references to object in lambda which will prevent garbage
-         collection.
-        */
-        long handle = reference.handle;
-        referenceMonitor.track(reference, () -> this.v8.releaseReference(this.runtimeHandle, handle));
+        if (this.isClosed())
+        {
+            throw new RuntimeException("Runtime is closed.");
+        }
+        Thread caller = NativeCallDispatcher.caller();
+        ReferenceScope scope = new ReferenceScope(this, this.currentScopes.get(caller));
+        this.currentScopes.put(caller, scope);
+        return scope;
+    }
+
+    void exitScope(ReferenceScope scope, ReferenceScope parent)
+    {
+        Thread caller = NativeCallDispatcher.caller();
+        if (this.currentScopes.get(caller) != scope)
+        {
+            throw new IllegalStateException("Scopes must be closed in reverse order of opening");
+        }
+        if (parent == null)
+        {
+            this.currentScopes.remove(caller);
+        }
+        else
+        {
+            this.currentScopes.put(caller, parent);
+        }
+    }
+
+    void releaseScopedReferences(long[] handles)
+    {
+        Lock lock = this.releaseLock.readLock();
+        lock.lock();
+        try
+        {
+            // References created by a closed runtime have already been released together with its isolate
+            if (!this.root.isClosed())
+            {
+                this.dispatcher.access(() -> this.v8.releaseReferences(this.root.runtimeHandle, handles));
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    void track(Reference reference)
+    {
+        // Most references are created with no scope open: the caller is only looked up otherwise
+        ReferenceScope scope = this.currentScopes.isEmpty() ? null
+                : this.currentScopes.get(NativeCallDispatcher.caller());
+        if (scope != null)
+        {
+            scope.add(reference.handle);
+            return;
+        }
+        trackWithMonitor(reference);
+    }
+
+    void trackWithMonitor(Reference reference)
+    {
+        // References are released through the runtime owning the isolate, which outlives all of its contexts
+        referenceMonitor.track(reference, reference.handle, this.releaser);
+    }
+
+    JSType getReferenceType(long handle)
+    {
+        return this.accessorsFactory.referenceTypeGetter().getType(handle);
+    }
+
+    int getIdentityHash(long handle)
+    {
+        return this.dispatcher.access(() -> this.v8.getIdentityHash(this.runtimeHandle, handle));
+    }
+
+    boolean referencesEqual(long firstHandle, long secondHandle)
+    {
+        return this.accessorsFactory.equalityChecker().checkAreEqual(firstHandle, secondHandle);
+    }
+
+    private void releaseReference(long handle)
+    {
+        // Handles are released in batches by the owning thread at safe points. The reference monitor is shared by all
+        // the runtimes, so it never waits here for an isolate busy running a script.
+        this.pendingReleases.add(handle);
+    }
+
+    private void releasePendingReferences()
+    {
+        if (this.pendingReleases.isEmpty())
+        {
+            return;
+        }
+
+        // The reference monitor can be shared, so it may reclaim references after their runtime has been closed
+        Lock lock = this.releaseLock.readLock();
+        lock.lock();
+        try
+        {
+            if (!this.isClosed())
+            {
+                long[] handles = this.pendingReleases.drain();
+                if (handles.length > 0)
+                {
+                    this.v8.releaseReferences(this.runtimeHandle, handles);
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
     @Override
     protected Reference runScript(String name, String script)
     {
-        return this.v8.executeScript(this.runtimeHandle, name, script, this.accessorsFactory.referenceTypeGetter(),
-                this.accessorsFactory.equalityChecker());
+        return this.dispatcher.execute(() ->
+        {
+            this.root.releasePendingReferences();
+            return this.v8.executeScript(this.runtimeHandle, name, script);
+        });
     }
 
     @Override
@@ -175,19 +1326,56 @@ public class Runtime extends JSBaseRuntime<Reference>
             return;
         }
 
-        this.referenceMonitor.interrupt();
-        try
+        EventLoop loop = this.eventLoop;
+        if (loop != null)
         {
-            this.referenceMonitor.join();
+            if (loop.isCurrentThread())
+            {
+                throw new IllegalStateException("The runtime cannot be closed from its own event loop");
+            }
+            loop.interrupt();
+            try
+            {
+                loop.join();
+            }
+            catch (InterruptedException e)
+            {
+                // Ignored: we must release resources anyway
+            }
         }
-        catch (InterruptedException e)
+
+        if (this.root != this)
         {
-            // Ignored: we must release resources anyway
+            if (this.v8.releaseRuntime(this.runtimeHandle))
+            {
+                super.close();
+                this.root.contexts.remove(this);
+            }
+            return;
         }
 
-        if (this.v8.releaseRuntime(this.runtimeHandle))
+        for (Runtime context : new ArrayList<>(this.contexts))
         {
-            super.close();
+            context.close();
+        }
+
+        Lock lock = this.releaseLock.writeLock();
+        lock.lock();
+        try
+        {
+            long[] handles = this.pendingReleases.drain();
+            if (handles.length > 0)
+            {
+                this.v8.releaseReferences(this.runtimeHandle, handles);
+            }
+            if (this.v8.releaseRuntime(this.runtimeHandle))
+            {
+                super.close();
+            }
+        }
+        finally
+        {
+            lock.unlock();
         }
     }
 
@@ -206,4 +1394,26 @@ public class Runtime extends JSBaseRuntime<Reference>
     {
         return (int) (runtimeHandle ^ (runtimeHandle >>> 32));
     }
-}
\ No newline at end of file
+
+    private static final class Watchdog
+    {
+        // A single wheel serves the deadlines of all runtimes; it is started on first use
+        private static final TimerWheel wheel = new TimerWheel();
+
+        static
+        {
+            wheel.start();
+        }
+    }
+
+    private static final class BackingStoreMonitor
+    {
+        // The contents of ArrayBuffers of all runtimes are tracked apart from references; it is started on first use
+        private static final ReferenceMonitor<ByteBuffer> instance = new ReferenceMonitor<>();
+
+        static
+        {
+            instance.start();
+        }
+    }
+}
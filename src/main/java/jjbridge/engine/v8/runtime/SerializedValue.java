@@ -0,0 +1,103 @@
+package jjbridge.engine.v8.runtime;
+
+import jjbridge.engine.v8.V8;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A JavaScript value serialized with the structured clone algorithm of {@code v8::ValueSerializer}.
+ * <p>The serialized bytes live in native memory and are only exposed to Java through a direct {@link ByteBuffer}
+ * wrapping them, so they are never copied into the Java heap. The native memory is freed by {@link #close()}.</p>
+ * <p>A value can be read by any number of threads at once, while closing it waits for them to finish. Readers hold a
+ * {@link ReadWriteLock} rather than the monitor of this object, so that a virtual thread reading the value in native
+ * code does not pin its carrier.</p>
+ * */
+public final class SerializedValue implements AutoCloseable
+{
+    private final V8 v8;
+    private final Lock readLock;
+    private final Lock closeLock;
+    private volatile ByteBuffer buffer;
+
+    SerializedValue(V8 v8, ByteBuffer buffer)
+    {
+        this.v8 = v8;
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.closeLock = lock.writeLock();
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the size of the serialized value.
+     *
+     * @return the size in bytes
+     * @throws IllegalStateException if this value has been closed
+     * */
+    public int size()
+    {
+        try
+        {
+            return acquire().capacity();
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    /**
+     * Tells whether the native memory of this value has been freed.
+     *
+     * @return true if this value has been closed
+     * */
+    public boolean isClosed()
+    {
+        return buffer == null;
+    }
+
+    /**
+     * Gives access to the native memory, which is not freed until {@link #release()} is called.
+     * <p>{@link #release()} must be called even if this method throws.</p>
+     *
+     * @return the buffer wrapping the native memory
+     * @throws IllegalStateException if this value has been closed
+     * */
+    ByteBuffer acquire()
+    {
+        this.readLock.lock();
+        ByteBuffer current = buffer;
+        if (current == null)
+        {
+            throw new IllegalStateException("Serialized value has been closed.");
+        }
+        return current;
+    }
+
+    void release()
+    {
+        this.readLock.unlock();
+    }
+
+    @Override
+    public void close()
+    {
+        this.closeLock.lock();
+        try
+        {
+            if (buffer == null)
+            {
+                return;
+            }
+            v8.releaseSerializedValue(buffer);
+            buffer = null;
+        }
+        finally
+        {
+            this.closeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package jjbridge.engine.v8.runtime;
+
+import jjbridge.api.runtime.ExecutionException;
+
+/**
+ * Thrown when a script or a function is terminated because it did not complete before its deadline.
+ * <p>The runtime is left in a usable state: it can run further scripts right away.</p>
+ * */
+public class TimeoutException extends ExecutionException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception.
+     *
+     * @param message the detail message
+     * @param cause the exception raised by the terminated execution
+     * */
+    public TimeoutException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+}
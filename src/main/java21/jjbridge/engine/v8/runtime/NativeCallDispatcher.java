@@ -0,0 +1,173 @@
+package jjbridge.engine.v8.runtime;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Decides on which thread the native calls of a {@link Runtime} are performed.
+ * <p>A virtual thread blocked inside a native call pins its carrier thread, both while waiting for the isolate lock
+ * and while JavaScript code runs. Hence, when called from a virtual thread, this implementation:</p>
+ * <ul>
+ *     <li>serializes the calls to the same runtime with a {@link ReentrantLock}, so that virtual threads waiting for
+ *     the runtime park instead of blocking in native code;</li>
+ *     <li>hands calls which run JavaScript code to a bounded pool of platform threads, so that carriers stay free
+ *     while scripts execute.</li>
+ * </ul>
+ * <p>Platform threads perform every call directly, as in the baseline implementation. This includes Java callbacks
+ * invoked by JavaScript code, which run on the platform thread executing the script: a callback must not wait for a
+ * virtual thread using the same runtime, since that virtual thread would wait for the lock held by the caller of the
+ * script.</p>
+ * <p>The size of the platform thread pool defaults to the number of available processors and can be changed with the
+ * {@code jjbridge.v8.platformThreads} system property.</p>
+ * */
+final class NativeCallDispatcher
+{
+    private static final AtomicInteger threadId = new AtomicInteger();
+    private static final ExecutorService platformExecutor = Executors.newFixedThreadPool(
+            Integer.getInteger("jjbridge.v8.platformThreads", java.lang.Runtime.getRuntime().availableProcessors()),
+            runnable ->
+            {
+                Thread thread = new Thread(runnable, "V8 Platform Call [" + threadId.getAndIncrement() + "]");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // The virtual thread on whose behalf a platform thread of the pool performs a call
+    private static final ThreadLocal<Thread> delegatingThread = new ThreadLocal<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Tells on behalf of which thread the current native call is performed.
+     * <p>State belonging to the caller, such as its reference scope, is found through this thread, so that it is also
+     * found while the call is performed on another thread.</p>
+     *
+     * @return the thread which made the current call
+     * */
+    static Thread caller()
+    {
+        Thread caller = delegatingThread.get();
+        return caller == null ? Thread.currentThread() : caller;
+    }
+
+    /**
+     * Tells whether calls from the current thread are performed directly on it.
+     * <p>Callers can then skip wrapping a short call in a lambda, and boxing its result.</p>
+     *
+     * @return {@code true} if {@link #access(Supplier)} and {@link #execute(Supplier)} would just perform the call
+     * */
+    boolean callsDirectly()
+    {
+        return !Thread.currentThread().isVirtual();
+    }
+
+    /**
+     * Performs a call which may run JavaScript code for an arbitrarily long time.
+     * <p>Besides scripts and functions, this includes reading and writing properties and elements, and converting
+     * values, since they can run getters, setters, proxy traps and {@code valueOf} methods.</p>
+     *
+     * @param call the native call
+     * @return the result of the call
+     * */
+    <T> T execute(Supplier<T> call)
+    {
+        if (!Thread.currentThread().isVirtual())
+        {
+            return call.get();
+        }
+
+        Thread caller = Thread.currentThread();
+        this.lock.lock();
+        try
+        {
+            // join() is not interruptible: the native call cannot be abandoned once started
+            return CompletableFuture.supplyAsync(() ->
+            {
+                delegatingThread.set(caller);
+                try
+                {
+                    return call.get();
+                }
+                finally
+                {
+                    delegatingThread.remove();
+                }
+            }, platformExecutor).join();
+        }
+        catch (CompletionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Performs a call which may run JavaScript code for an arbitrarily long time, and has no result.
+     *
+     * @param call the native call
+     * @see #execute(Supplier)
+     * */
+    void execute(Runnable call)
+    {
+        execute(() ->
+        {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Performs a short call which only reads or writes a value, without running any JavaScript code.
+     *
+     * @param call the native call
+     * @return the result of the call
+     * */
+    <T> T access(Supplier<T> call)
+    {
+        if (!Thread.currentThread().isVirtual())
+        {
+            return call.get();
+        }
+
+        this.lock.lock();
+        try
+        {
+            return call.get();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Performs a short call which only writes a value, without running any JavaScript code.
+     *
+     * @param call the native call
+     * */
+    void access(Runnable call)
+    {
+        access(() ->
+        {
+            call.run();
+            return null;
+        });
+    }
+}
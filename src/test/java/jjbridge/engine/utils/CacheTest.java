@@ -3,6 +3,9 @@ package jjbridge.engine.utils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -65,4 +68,68 @@ public class CacheTest {
         assertNull(cache.get(handle3));
         assertNull(cache.get(handle4));
     }
+
+    @Test
+    public void storeNullDeletes() {
+        cache.store(123, object1);
+        cache.store(123, null);
+        assertNull(cache.get(123));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void growsAndKeepsProbeSequencesOnDelete() {
+        // Pointer-like handles, all sharing the low bits
+        int count = 10000;
+        for (int i = 0; i < count; i++) {
+            cache.store(0x7f0000000000L + i * 64L, i);
+        }
+        assertEquals(count, cache.size());
+        for (int i = 0; i < count; i += 2) {
+            cache.delete(0x7f0000000000L + i * 64L);
+        }
+        assertEquals(count / 2, cache.size());
+        for (int i = 0; i < count; i++) {
+            Object value = cache.get(0x7f0000000000L + i * 64L);
+            if (i % 2 == 0) {
+                assertNull(value);
+            } else {
+                assertEquals(i, value);
+            }
+        }
+        cache.delete(42);
+        assertEquals(count / 2, cache.size());
+    }
+
+    @Test
+    public void concurrentAccess() throws InterruptedException {
+        int threads = 4;
+        int perThread = 5000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * perThread;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    cache.store(base + i, base + i);
+                }
+                for (int i = 0; i < perThread; i += 2) {
+                    cache.delete(base + i);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread / 2, cache.size());
+        for (long handle = 0; handle < threads * perThread; handle++) {
+            if (handle % 2 == 0) {
+                assertNull(cache.get(handle));
+            } else {
+                assertEquals(handle, cache.get(handle));
+            }
+        }
+    }
 }
@@ -6,6 +6,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.function.LongConsumer;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.verify;
 
@@ -30,4 +32,11 @@ public class NativeReferenceTest {
         reference.cleanUp();
         verify(action).cleanUp();
     }
+
+    @Test
+    public void cleanUpReceivesId() {
+        long[] received = new long[1];
+        new NativeReference<>(id, new Object(), null, (LongConsumer) value -> received[0] = value).cleanUp();
+        assertEquals(id, received[0]);
+    }
 }
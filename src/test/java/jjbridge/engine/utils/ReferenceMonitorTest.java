@@ -4,6 +4,12 @@ import jjbridge.engine.MemoryTimeWaster;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -12,7 +18,7 @@ public class ReferenceMonitorTest {
 
     @BeforeEach
     public void before() {
-        referenceMonitor = new ReferenceMonitor<>(50);
+        referenceMonitor = new ReferenceMonitor<>();
     }
 
     @Test
@@ -49,4 +55,102 @@ public class ReferenceMonitorTest {
             fail();
         }
     }
+
+    private static void awaitCleanUps(AtomicInteger cleanUps, int expected) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cleanUps.get() < expected && System.currentTimeMillis() < deadline) {
+            System.gc();
+            MemoryTimeWaster.waste(1000000);
+        }
+    }
+
+    @Test
+    public void startIsIdempotent() {
+        referenceMonitor.start();
+        referenceMonitor.start();
+        assertTrue(referenceMonitor.isAlive());
+    }
+
+    @Test
+    public void interruptWakesUpIdleMonitor() throws InterruptedException {
+        referenceMonitor.start();
+        Thread.sleep(100);
+
+        referenceMonitor.interrupt();
+        referenceMonitor.join(1000);
+        assertFalse(referenceMonitor.isAlive());
+    }
+
+    @Test
+    public void failingCleanUpDoesNotStopMonitor() {
+        ReferenceMonitor<Object> monitor = new ReferenceMonitor<>();
+        AtomicInteger failures = new AtomicInteger();
+        monitor.setUncaughtExceptionHandler((thread, e) -> {
+            if (e instanceof IllegalStateException) {
+                failures.incrementAndGet();
+            }
+        });
+        monitor.start();
+
+        AtomicInteger cleanUps = new AtomicInteger();
+        monitor.track(new Object(), () -> {
+            throw new IllegalStateException("failure");
+        });
+        for (int i = 0; i < 10; i++) {
+            monitor.track(new Object(), cleanUps::incrementAndGet);
+        }
+
+        awaitCleanUps(cleanUps, 10);
+        awaitCleanUps(failures, 1);
+        assertTrue(monitor.isAlive());
+        assertEquals(10, cleanUps.get());
+        // The failure is reported to the handler of the monitor thread
+        assertEquals(1, failures.get());
+        monitor.interrupt();
+    }
+
+    @Test
+    public void sharedAcrossThreads() throws InterruptedException {
+        ReferenceMonitor<Object> monitor = new ReferenceMonitor<>();
+        monitor.start();
+
+        AtomicInteger cleanUps = new AtomicInteger();
+        Thread[] owners = new Thread[8];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    monitor.track(new Object(), cleanUps::incrementAndGet);
+                }
+            });
+            owners[i].start();
+        }
+        for (Thread owner : owners) {
+            owner.join();
+        }
+
+        awaitCleanUps(cleanUps, 8000);
+        assertEquals(8000, cleanUps.get());
+        monitor.interrupt();
+    }
+
+    @Test
+    public void sharedCleanUpReceivesIds() {
+        ReferenceMonitor<Object> monitor = new ReferenceMonitor<>();
+        monitor.start();
+
+        AtomicInteger cleanUps = new AtomicInteger();
+        AtomicLong idSum = new AtomicLong();
+        LongConsumer cleanUp = id -> {
+            idSum.addAndGet(id);
+            cleanUps.incrementAndGet();
+        };
+        for (int i = 1; i <= 10; i++) {
+            monitor.track(new Object(), i, cleanUp);
+        }
+
+        awaitCleanUps(cleanUps, 10);
+        assertEquals(10, cleanUps.get());
+        assertEquals(55, idSum.get());
+        monitor.interrupt();
+    }
 }
@@ -0,0 +1,81 @@
+package jjbridge.engine.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimerWheelTest {
+    private TimerWheel timerWheel;
+
+    @BeforeEach
+    public void before() {
+        timerWheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @AfterEach
+    public void after() throws InterruptedException {
+        timerWheel.interrupt();
+        timerWheel.join(1000);
+    }
+
+    @Test
+    public void isDaemon() {
+        assertTrue(timerWheel.isDaemon());
+    }
+
+    @Test
+    public void expiresAfterDelay() throws InterruptedException {
+        timerWheel.start();
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        // The delay spans several rounds of the wheel
+        TimerWheel.Timeout timeout = timerWheel.schedule(latch::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertFalse(timeout.isCancelled());
+    }
+
+    @Test
+    public void cancelledTimeoutsDoNotExpire() throws InterruptedException {
+        timerWheel.start();
+        AtomicInteger expirations = new AtomicInteger();
+        TimerWheel.Timeout cancelled = timerWheel.schedule(expirations::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+        assertTrue(cancelled.cancel());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        timerWheel.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        assertEquals(0, expirations.get());
+        assertTrue(cancelled.isCancelled());
+        assertFalse(cancelled.isExpired());
+    }
+
+    @Test
+    public void failingActionDoesNotStopTheWheel() throws InterruptedException {
+        timerWheel.start();
+        timerWheel.schedule(() -> {
+            throw new IllegalStateException("failure");
+        }, 0, TimeUnit.MILLISECONDS);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        timerWheel.schedule(latch::countDown, 5, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void invalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(0, TimeUnit.MILLISECONDS, 8));
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel(1, TimeUnit.MILLISECONDS, 0));
+    }
+}
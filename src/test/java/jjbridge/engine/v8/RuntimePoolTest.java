@@ -0,0 +1,213 @@
+package jjbridge.engine.v8;
+
+import jjbridge.engine.v8.runtime.HeapStatistics;
+import jjbridge.engine.v8.runtime.Runtime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RuntimePoolTest {
+    private final List<Runtime> created = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong();
+    private RuntimePool pool;
+
+    private synchronized Runtime newRuntime() {
+        Runtime runtime = mock(Runtime.class);
+        when(runtime.getHeapStatistics()).thenReturn(new HeapStatistics(new long[]{0, 0, 0, 0, 0, 0}));
+        created.add(runtime);
+        return runtime;
+    }
+
+    private RuntimePool newPool(int size, int maxUses, long maxUsedHeapBytes, long maxAgeMillis) {
+        return new RuntimePool(this::newRuntime, size, maxUses, maxUsedHeapBytes, maxAgeMillis, clock::get);
+    }
+
+    @AfterEach
+    public void after() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> newPool(0, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> newPool(1, -1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> newPool(1, 0, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> newPool(1, 0, 0, -1));
+    }
+
+    @Test
+    public void borrowAndReturn() throws InterruptedException {
+        pool = newPool(2, 0, 0, 0);
+
+        Runtime first = pool.borrow();
+        Runtime second = pool.borrow();
+        assertNotSame(first, second);
+        assertNull(pool.borrow(10, TimeUnit.MILLISECONDS));
+
+        pool.returnRuntime(first);
+        assertSame(first, pool.borrow());
+        pool.returnRuntime(first);
+        pool.returnRuntime(second);
+
+        RuntimePool.Metrics metrics = pool.getMetrics();
+        assertEquals(4, metrics.getBorrows());
+        assertEquals(1, metrics.getTimeouts());
+        assertEquals(metrics.getBorrows(), metrics.getHits() + metrics.getMisses());
+        assertEquals(2, metrics.getCreations());
+        assertEquals(0, metrics.getEvictions());
+        assertEquals(2, metrics.getIdle());
+        assertEquals(0, metrics.getBorrowed());
+    }
+
+    @Test
+    public void returnForeignOrTwice() throws InterruptedException {
+        pool = newPool(1, 0, 0, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> pool.returnRuntime(mock(Runtime.class)));
+
+        Runtime runtime = pool.borrow();
+        pool.returnRuntime(runtime);
+        assertThrows(IllegalStateException.class, () -> pool.returnRuntime(runtime));
+    }
+
+    @Test
+    public void retireAfterMaxUses() throws InterruptedException {
+        pool = newPool(1, 2, 0, 0);
+
+        Runtime runtime = pool.borrow();
+        pool.returnRuntime(runtime);
+        assertSame(runtime, pool.borrow());
+        pool.returnRuntime(runtime);
+
+        verify(runtime, timeout(1000)).close();
+        assertNotSame(runtime, pool.borrow());
+        assertEquals(1, pool.getMetrics().getEvictions());
+        assertEquals(2, pool.getMetrics().getCreations());
+    }
+
+    @Test
+    public void retireAfterMaxAge() throws InterruptedException {
+        pool = newPool(1, 0, 0, 100);
+
+        Runtime runtime = pool.borrow();
+        pool.returnRuntime(runtime);
+        assertSame(runtime, pool.borrow());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        pool.returnRuntime(runtime);
+
+        verify(runtime, timeout(1000)).close();
+        assertNotSame(runtime, pool.borrow());
+        assertEquals(1, pool.getMetrics().getEvictions());
+    }
+
+    @Test
+    public void retireAfterMaxHeap() throws InterruptedException {
+        pool = newPool(1, 0, 1024, 0);
+
+        Runtime runtime = pool.borrow();
+        pool.returnRuntime(runtime);
+        assertSame(runtime, pool.borrow());
+        when(runtime.getHeapStatistics()).thenReturn(new HeapStatistics(new long[]{4096, 2048, 0, 0, 0, 0}));
+        pool.returnRuntime(runtime);
+
+        verify(runtime, timeout(1000)).close();
+        assertNotSame(runtime, pool.borrow());
+        assertEquals(1, pool.getMetrics().getEvictions());
+    }
+
+    @Test
+    public void closeReleasesRuntimes() throws InterruptedException {
+        pool = newPool(2, 0, 0, 0);
+
+        Runtime borrowed = pool.borrow();
+        Runtime idle = pool.borrow();
+        pool.returnRuntime(idle);
+        pool.close();
+
+        verify(idle).close();
+        verify(borrowed, never()).close();
+        assertThrows(IllegalStateException.class, () -> pool.borrow());
+
+        pool.returnRuntime(borrowed);
+        verify(borrowed).close();
+        assertTrue(created.size() <= 2);
+    }
+
+    private CompletableFuture<Runtime> borrowAsync() throws InterruptedException {
+        long misses = pool.getMetrics().getMisses();
+        CompletableFuture<Runtime> borrowing = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (pool.getMetrics().getMisses() == misses) {
+            Thread.sleep(1);
+        }
+        return borrowing;
+    }
+
+    @Test
+    public void creationFailureReachesBorrowersAndIsRetried() throws Exception {
+        CountDownLatch fail = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger(1);
+        RuntimeException failure = new RuntimeException("no isolate");
+        pool = new RuntimePool(() -> {
+            if (failures.getAndDecrement() > 0) {
+                try {
+                    fail.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw failure;
+            }
+            return newRuntime();
+        }, 1, 0, 0, 0, clock::get);
+
+        CompletableFuture<Runtime> waiting = borrowAsync();
+        fail.countDown();
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> waiting.get(1, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertSame(failure, exception.getCause().getCause());
+
+        Runtime runtime = pool.borrow(1, TimeUnit.SECONDS);
+        assertSame(created.get(0), runtime);
+        assertEquals(1, pool.getMetrics().getCreations());
+    }
+
+    @Test
+    public void closeWakesWaitingBorrowers() throws Exception {
+        pool = newPool(1, 0, 0, 0);
+        Runtime borrowed = pool.borrow();
+
+        CompletableFuture<Runtime> waiting = borrowAsync();
+        pool.close();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> waiting.get(1, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        pool.returnRuntime(borrowed);
+    }
+}
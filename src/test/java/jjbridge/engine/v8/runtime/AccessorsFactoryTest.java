@@ -26,6 +26,7 @@ public class AccessorsFactoryTest {
     private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
 
     @Mock private V8 v8;
+    @Mock private Runtime runtime;
     private static final long runtimeHandle = 120;
     private static final long referenceHandle = 5;
     private AccessorsFactory factory;
@@ -128,17 +129,16 @@ public class AccessorsFactoryTest {
 
     @Test
     public void propertyGetter() {
-        Reference value = new Reference(referenceHandle, JSType.Null, factory.referenceTypeGetter(), factory.equalityChecker());
+        Reference value = new Reference(referenceHandle, JSType.Null, runtime);
         String propertyName = "propertyName";
         ObjectPropertyGetter<Reference> getter = factory.propertyGetter(referenceHandle);
-        when(v8.getObjectProperty(runtimeHandle, referenceHandle, propertyName, factory.referenceTypeGetter(), factory.equalityChecker())).thenReturn(value);
-        when(v8.equalsValue(runtimeHandle, referenceHandle, referenceHandle)).thenReturn(true);
-        assertEquals(value, getter.getPropertyByName(propertyName));
+        when(v8.getObjectProperty(runtimeHandle, referenceHandle, propertyName)).thenReturn(value);
+        assertSame(value, getter.getPropertyByName(propertyName));
     }
 
     @Test
     public void propertySetter() {
-        Reference value = new Reference(referenceHandle, JSType.Null, factory.referenceTypeGetter(), factory.equalityChecker());
+        Reference value = new Reference(referenceHandle, JSType.Null, runtime);
         String propertyName = "propertyName";
 
         ObjectPropertySetter<Reference> setter = factory.propertySetter(referenceHandle);
@@ -151,19 +151,18 @@ public class AccessorsFactoryTest {
         int expected = 100;
         int position = 5;
 
-        Reference value = new Reference(referenceHandle, JSType.Null, factory.referenceTypeGetter(), factory.equalityChecker());
+        Reference value = new Reference(referenceHandle, JSType.Null, runtime);
         ArrayDataGetter<Reference> getter = factory.arrayDataGetter(referenceHandle);
         when(v8.getArraySize(runtimeHandle, referenceHandle)).thenReturn(expected);
         assertEquals(expected, getter.getSize());
-        when(v8.getElementByPosition(runtimeHandle, referenceHandle, position, factory.referenceTypeGetter(), factory.equalityChecker())).thenReturn(value);
-        when(v8.equalsValue(runtimeHandle, referenceHandle, referenceHandle)).thenReturn(true);
-        assertEquals(value, getter.getItemByPosition(position));
+        when(v8.getElementByPosition(runtimeHandle, referenceHandle, position)).thenReturn(value);
+        assertSame(value, getter.getItemByPosition(position));
     }
 
     @Test
     public void arrayDataSetter() {
         int position = 60;
-        Reference value = new Reference(referenceHandle, JSType.Null, factory.referenceTypeGetter(), factory.equalityChecker());
+        Reference value = new Reference(referenceHandle, JSType.Null, runtime);
 
         ArrayDataSetter<Reference> setter = factory.arrayDataSetter(referenceHandle);
         setter.setItemByPosition(position, value);
@@ -173,9 +172,9 @@ public class AccessorsFactoryTest {
     @Test
     public void functionInvoker() {
         Reference[] args = {
-            new Reference(1, JSType.Null, factory.referenceTypeGetter(), factory.equalityChecker()),
-            new Reference(265, JSType.Null, factory.referenceTypeGetter(), factory.equalityChecker()),
-            new Reference(10000000, JSType.Null, factory.referenceTypeGetter(), factory.equalityChecker()),
+            new Reference(1, JSType.Null, runtime),
+            new Reference(265, JSType.Null, runtime),
+            new Reference(10000000, JSType.Null, runtime),
         };
 
         long[] argHandles = new long[args.length];
@@ -183,11 +182,11 @@ public class AccessorsFactoryTest {
             argHandles[i] = args[i].handle;
         }
 
-        Reference receiver = new Reference(referenceHandle, JSType.Null, factory.referenceTypeGetter(), factory.equalityChecker());
+        Reference receiver = new Reference(referenceHandle, JSType.Null, runtime);
         FunctionInvoker<Reference> getter = factory.functionInvoker(referenceHandle);
-        when(v8.invokeFunction(runtimeHandle, referenceHandle, receiver.handle, argHandles, factory.referenceTypeGetter(), factory.equalityChecker())).thenReturn(null);
+        when(v8.invokeFunction(runtimeHandle, referenceHandle, receiver.handle, argHandles)).thenReturn(null);
         assertNull(getter.invokeFunction(receiver, args));
-        when(v8.invokeConstructor(runtimeHandle, referenceHandle, argHandles, factory.referenceTypeGetter(), factory.equalityChecker())).thenReturn(null);
+        when(v8.invokeConstructor(runtimeHandle, referenceHandle, argHandles)).thenReturn(null);
         assertNull(getter.invokeConstructor(args));
     }
 
@@ -197,6 +196,6 @@ public class AccessorsFactoryTest {
 
         FunctionSetter<Reference> setter = factory.functionSetter(referenceHandle);
         setter.setFunction(callback);
-        verify(v8).setFunctionHandler(runtimeHandle, referenceHandle, callback, factory.referenceTypeGetter(), factory.equalityChecker());
+        verify(v8).setFunctionHandler(runtimeHandle, referenceHandle, callback);
     }
 }
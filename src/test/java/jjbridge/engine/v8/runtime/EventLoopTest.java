@@ -0,0 +1,164 @@
+package jjbridge.engine.v8.runtime;
+
+import jjbridge.engine.v8.V8;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EventLoopTest {
+    @Mock private V8 v8;
+    private static final long runtimeHandle = 120;
+    private static final long lockHandle = 7;
+    private EventLoop eventLoop;
+
+    @BeforeEach
+    public void before() {
+        lenient().when(v8.lockIsolate(runtimeHandle)).thenReturn(lockHandle);
+        eventLoop = new EventLoop(v8, runtimeHandle);
+    }
+
+    @AfterEach
+    public void after() throws InterruptedException {
+        eventLoop.interrupt();
+        eventLoop.join(1000);
+    }
+
+    @Test
+    public void isDaemon() {
+        assertTrue(eventLoop.isDaemon());
+    }
+
+    @Test
+    public void submitRunsOnEventLoop() throws Exception {
+        eventLoop.start();
+
+        CompletableFuture<Boolean> future = eventLoop.submit(() -> eventLoop.isCurrentThread());
+        assertTrue(future.get(1, TimeUnit.SECONDS));
+        assertFalse(eventLoop.isCurrentThread());
+
+        verify(v8, atLeastOnce()).lockIsolate(runtimeHandle);
+        verify(v8, timeout(1000).atLeastOnce()).performMicrotaskCheckpoint(runtimeHandle);
+        verify(v8, timeout(1000).atLeastOnce()).unlockIsolate(runtimeHandle, lockHandle);
+    }
+
+    @Test
+    public void submitPropagatesExceptions() throws InterruptedException {
+        eventLoop.start();
+
+        RuntimeException exception = new RuntimeException("error");
+        CompletableFuture<Object> future = eventLoop.submit(() -> {
+            throw exception;
+        });
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(exception, e.getCause());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void queuedTasksAreDrainedUnderOneLock() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        eventLoop.start();
+        eventLoop.submit(() -> {
+            started.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+            return null;
+        });
+        started.await();
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            futures.add(eventLoop.submit(() -> value));
+        }
+        blocker.countDown();
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, futures.get(i).get(1, TimeUnit.SECONDS));
+        }
+        // The first batch runs the blocking task, the second one all the tasks queued meanwhile
+        verify(v8, times(2)).lockIsolate(runtimeHandle);
+    }
+
+    @Test
+    public void scheduleRunsAfterDelay() throws Exception {
+        eventLoop.start();
+
+        long start = System.nanoTime();
+        List<Integer> order = new ArrayList<>();
+        CompletableFuture<Void> second = eventLoop.schedule(() -> order.add(2), 60, TimeUnit.MILLISECONDS);
+        CompletableFuture<Void> first = eventLoop.schedule(() -> order.add(1), 30, TimeUnit.MILLISECONDS);
+        CompletableFuture<Void> cancelled = eventLoop.schedule(() -> order.add(3), 40, TimeUnit.MILLISECONDS);
+        cancelled.cancel(false);
+
+        CompletableFuture.allOf(first, second).get(1, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(60));
+        assertEquals(2, order.size());
+        assertEquals(1, order.get(0));
+        assertEquals(2, order.get(1));
+    }
+
+    @Test
+    public void interruptCancelsPendingTimers() throws InterruptedException {
+        eventLoop.start();
+
+        CompletableFuture<Void> future = eventLoop.schedule(() -> { }, 1, TimeUnit.HOURS);
+        eventLoop.interrupt();
+        eventLoop.join(1000);
+
+        assertFalse(eventLoop.isAlive());
+        assertThrows(CancellationException.class, future::join);
+        assertThrows(IllegalStateException.class, () -> {
+            try {
+                eventLoop.submit(() -> null).join();
+            } catch (Exception e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Test
+    public void safePointRunsAfterEachBatchUnderLock() throws Exception {
+        List<String> calls = new ArrayList<>();
+        lenient().doAnswer(invocation -> calls.add("checkpoint")).when(v8).performMicrotaskCheckpoint(runtimeHandle);
+        lenient().doAnswer(invocation -> calls.add("unlock")).when(v8).unlockIsolate(runtimeHandle, lockHandle);
+        EventLoop loop = new EventLoop(v8, runtimeHandle, () -> calls.add("safePoint"));
+        loop.start();
+        try {
+            loop.submit(() -> calls.add("task")).get(1, TimeUnit.SECONDS);
+            verify(v8, timeout(1000)).unlockIsolate(runtimeHandle, lockHandle);
+            assertEquals(4, calls.size());
+            assertEquals("task", calls.get(0));
+            assertEquals("checkpoint", calls.get(1));
+            assertEquals("safePoint", calls.get(2));
+            assertEquals("unlock", calls.get(3));
+        } finally {
+            loop.interrupt();
+            loop.join(1000);
+        }
+    }
+}
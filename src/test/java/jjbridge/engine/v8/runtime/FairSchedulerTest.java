@@ -0,0 +1,252 @@
+package jjbridge.engine.v8.runtime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FairSchedulerTest {
+    @Mock private Runtime first;
+    @Mock private Runtime second;
+    @Mock private Runtime third;
+    private AtomicLong cpuClock;
+    private List<Runtime> interrupts;
+    private FairScheduler scheduler;
+
+    @BeforeEach
+    public void before() {
+        cpuClock = new AtomicLong();
+        interrupts = new CopyOnWriteArrayList<>();
+        scheduler = new FairScheduler(1, 5, TimeUnit.MILLISECONDS, interrupts::add, cpuClock::get);
+        scheduler.register(first, 1);
+        scheduler.register(second, 1);
+        scheduler.register(third, 1);
+    }
+
+    @AfterEach
+    public void after() {
+        scheduler.close();
+    }
+
+    private Thread executeInBackground(Runtime runtime, Runnable operation) {
+        Thread thread = new Thread(() -> scheduler.execute(runtime, () -> {
+            operation.run();
+            return null;
+        }));
+        thread.start();
+        return thread;
+    }
+
+    private void awaitWaiting(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getWaitingCount() < count) {
+            assertTrue(System.nanoTime() < deadline, "Waiting operations");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void executeChargesCpuTime() {
+        assertEquals(42, (int) scheduler.execute(first, () -> {
+            cpuClock.addAndGet(1000);
+            return 42;
+        }));
+
+        FairScheduler.Usage usage = scheduler.getUsage(first);
+        assertEquals(1000, usage.getCpuTimeNanos());
+        assertEquals(1, usage.getSlices());
+        assertEquals(0, usage.getPreemptions());
+        assertEquals(0, scheduler.getUsage(second).getCpuTimeNanos());
+    }
+
+    @Test
+    public void nestedExecuteRunsInOuterSlice() {
+        scheduler.execute(first, () -> scheduler.execute(second, () -> cpuClock.addAndGet(1000)));
+
+        assertEquals(1, scheduler.getUsage(first).getSlices());
+        assertEquals(1000, scheduler.getUsage(first).getCpuTimeNanos());
+        assertEquals(0, scheduler.getUsage(second).getSlices());
+    }
+
+    @Test
+    public void permitsBoundConcurrency() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean secondRan = new AtomicBoolean(false);
+        Thread holder = executeInBackground(first, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+            assertFalse(secondRan.get());
+        });
+        Thread.sleep(20);
+        Thread waiter = executeInBackground(second, () -> secondRan.set(true));
+        awaitWaiting(1);
+        assertFalse(secondRan.get());
+
+        release.countDown();
+        holder.join(5000);
+        waiter.join(5000);
+        assertTrue(secondRan.get());
+    }
+
+    @Test
+    public void preemptsLongRunningOperationsWhenOthersWait() throws InterruptedException {
+        AtomicBoolean secondRan = new AtomicBoolean(false);
+        AtomicBoolean resumedAfterSecond = new AtomicBoolean(false);
+        CountDownLatch started = new CountDownLatch(1);
+        Thread longRunning = executeInBackground(first, () -> {
+            started.countDown();
+            // Simulates V8 running the interrupt callback at a safe point of the script
+            while (interrupts.isEmpty()) {
+                Thread.yield();
+            }
+            FairScheduler.interrupted();
+            resumedAfterSecond.set(secondRan.get());
+        });
+        started.await();
+        Thread waiter = executeInBackground(second, () -> secondRan.set(true));
+
+        longRunning.join(5000);
+        waiter.join(5000);
+        assertFalse(longRunning.isAlive());
+        assertTrue(resumedAfterSecond.get());
+        assertEquals(first, interrupts.get(0));
+        assertEquals(1, scheduler.getUsage(first).getPreemptions());
+        assertEquals(2, scheduler.getUsage(first).getSlices());
+    }
+
+    @Test
+    public void preemptedOperationKeepsItsIsolate() throws InterruptedException {
+        // first and second share an isolate, whose lock the preempted thread keeps while it waits
+        scheduler.close();
+        scheduler = new FairScheduler(1, 5, TimeUnit.MILLISECONDS, interrupts::add, cpuClock::get,
+                runtime -> runtime == third ? third : first);
+        scheduler.register(first, 1);
+        scheduler.register(second, 1);
+        scheduler.register(third, 1);
+
+        ReentrantLock isolateLock = new ReentrantLock();
+        List<Runtime> order = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread longRunning = executeInBackground(first, () -> {
+            isolateLock.lock();
+            try {
+                started.countDown();
+                while (interrupts.isEmpty()) {
+                    Thread.yield();
+                }
+                FairScheduler.interrupted();
+                order.add(first);
+            } finally {
+                isolateLock.unlock();
+            }
+        });
+        started.await();
+        Thread sameIsolate = executeInBackground(second, () -> {
+            isolateLock.lock();
+            order.add(second);
+            isolateLock.unlock();
+        });
+        awaitWaiting(1);
+        Thread.sleep(20);
+        // Waiting for the same isolate is no reason to preempt
+        assertTrue(interrupts.isEmpty());
+
+        Thread otherIsolate = executeInBackground(third, () -> order.add(third));
+        longRunning.join(5000);
+        sameIsolate.join(5000);
+        otherIsolate.join(5000);
+
+        assertFalse(longRunning.isAlive());
+        assertFalse(sameIsolate.isAlive());
+        assertEquals(third, order.get(0));
+        assertEquals(first, order.get(1));
+        assertEquals(second, order.get(2));
+        assertEquals(1, scheduler.getUsage(first).getPreemptions());
+    }
+
+    @Test
+    public void doesNotPreemptWithoutWaitingOperations() throws InterruptedException {
+        scheduler.execute(first, () -> {
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+            return null;
+        });
+
+        assertTrue(interrupts.isEmpty());
+        assertEquals(0, scheduler.getUsage(first).getPreemptions());
+    }
+
+    @Test
+    public void staleInterruptsAreIgnored() {
+        FairScheduler.interrupted();
+        scheduler.execute(first, () -> {
+            FairScheduler.interrupted();
+            return null;
+        });
+
+        assertEquals(1, scheduler.getUsage(first).getSlices());
+    }
+
+    @Test
+    public void grantsPermitsByWeightedCpuTime() throws InterruptedException {
+        scheduler.register(first, 2);
+        scheduler.execute(first, () -> cpuClock.addAndGet(1000));
+        scheduler.execute(second, () -> cpuClock.addAndGet(600));
+
+        List<Runtime> order = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = executeInBackground(third, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+        });
+        Thread.sleep(20);
+        Thread secondWaiter = executeInBackground(second, () -> order.add(second));
+        awaitWaiting(1);
+        Thread firstWaiter = executeInBackground(first, () -> order.add(first));
+        awaitWaiting(2);
+
+        release.countDown();
+        holder.join(5000);
+        secondWaiter.join(5000);
+        firstWaiter.join(5000);
+
+        // first consumed 1000 with weight 2, second consumed 600 with weight 1
+        assertEquals(first, order.get(0));
+        assertEquals(second, order.get(1));
+    }
+
+    @Test
+    public void rejectsInvalidUsage() {
+        assertThrows(IllegalArgumentException.class, () -> scheduler.register(first, 0));
+        scheduler.unregister(first);
+        assertThrows(IllegalArgumentException.class, () -> scheduler.execute(first, () -> null));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.getUsage(first));
+
+        scheduler.close();
+        assertThrows(IllegalStateException.class, () -> scheduler.execute(second, () -> null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new FairScheduler(0, 1, TimeUnit.MILLISECONDS, interrupts::add, cpuClock::get));
+    }
+}
@@ -0,0 +1,56 @@
+package jjbridge.engine.v8.runtime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NativeCallDispatcherTest {
+    private NativeCallDispatcher dispatcher;
+
+    @BeforeEach
+    public void before() {
+        dispatcher = new NativeCallDispatcher();
+    }
+
+    @Test
+    public void executeOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        assertSame(caller, dispatcher.execute(Thread::currentThread));
+    }
+
+    @Test
+    public void accessOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        assertSame(caller, dispatcher.access(Thread::currentThread));
+
+        Thread[] accessThread = new Thread[1];
+        dispatcher.access(() -> {
+            accessThread[0] = Thread.currentThread();
+        });
+        assertSame(caller, accessThread[0]);
+    }
+
+    @Test
+    public void platformThreadsCallDirectly() {
+        assertTrue(dispatcher.callsDirectly());
+    }
+
+    @Test
+    public void callerIsTheCallingThread() {
+        Thread caller = Thread.currentThread();
+        assertSame(caller, NativeCallDispatcher.caller());
+        assertSame(caller, dispatcher.execute(NativeCallDispatcher::caller));
+    }
+
+    @Test
+    public void exceptionsArePropagated() {
+        RuntimeException exception = new RuntimeException("error");
+        assertSame(exception, assertThrows(RuntimeException.class, () -> dispatcher.execute(() -> {
+            throw exception;
+        })));
+        assertSame(exception, assertThrows(RuntimeException.class, () -> dispatcher.access(() -> {
+            throw exception;
+        })));
+    }
+}
@@ -0,0 +1,125 @@
+package jjbridge.engine.v8.runtime;
+
+import jjbridge.api.value.JSType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReferenceScopeTest {
+    @Mock private Runtime runtime;
+
+    private static Reference reference(long handle) {
+        // Owned by another mock, so that registering does not interfere with the verifications on the scope runtime
+        return new Reference(handle, JSType.Object, mock(Runtime.class));
+    }
+
+    @Test
+    public void closeReleasesAllReferencesAtOnce() {
+        ReferenceScope scope = new ReferenceScope(runtime, null);
+        for (long i = 1; i <= 100; i++) {
+            scope.add(i);
+        }
+        assertEquals(100, scope.size());
+
+        scope.close();
+        scope.close();
+
+        long[] expected = new long[100];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i + 1;
+        }
+        verify(runtime).exitScope(scope, null);
+        verify(runtime, times(1)).releaseScopedReferences(expected);
+        assertEquals(0, scope.size());
+    }
+
+    @Test
+    public void emptyScopeReleasesNothing() {
+        ReferenceScope scope = new ReferenceScope(runtime, null);
+        scope.close();
+
+        verify(runtime, never()).releaseScopedReferences(any());
+    }
+
+    @Test
+    public void escapedReferencesAreTrackedByMonitor() {
+        ReferenceScope scope = new ReferenceScope(runtime, null);
+        Reference kept = reference(2);
+        scope.add(1);
+        scope.add(2);
+        scope.add(3);
+
+        assertSame(kept, scope.escape(kept));
+        assertEquals(2, scope.size());
+        verify(runtime).trackWithMonitor(kept);
+
+        scope.close();
+        verify(runtime).releaseScopedReferences(new long[]{1, 3});
+    }
+
+    @Test
+    public void escapedReferencesMoveToParentScope() {
+        ReferenceScope parent = new ReferenceScope(runtime, null);
+        ReferenceScope child = new ReferenceScope(runtime, parent);
+        Reference kept = reference(7);
+        child.add(6);
+        child.add(7);
+
+        child.escape(kept);
+        child.close();
+        verify(runtime).exitScope(child, parent);
+        verify(runtime).releaseScopedReferences(new long[]{6});
+        verify(runtime, never()).trackWithMonitor(any());
+        assertEquals(1, parent.size());
+
+        parent.close();
+        verify(runtime).releaseScopedReferences(new long[]{7});
+    }
+
+    @Test
+    public void escapeRejectsForeignReferences() {
+        ReferenceScope scope = new ReferenceScope(runtime, null);
+        scope.add(1);
+
+        assertThrows(IllegalArgumentException.class, () -> scope.escape(reference(2)));
+        scope.close();
+        assertThrows(IllegalStateException.class, () -> scope.escape(reference(1)));
+    }
+
+    @Test
+    public void canonicalReferencesNeedNoEscape() {
+        ReferenceScope scope = new ReferenceScope(runtime, null);
+        Reference undefined = reference(9);
+        when(runtime.isCanonical(undefined)).thenReturn(true);
+
+        assertSame(undefined, scope.escape(undefined));
+        verify(runtime, never()).trackWithMonitor(any());
+        scope.close();
+        verify(runtime, never()).releaseScopedReferences(any());
+    }
+
+    @Test
+    public void scopeIsConfinedToItsThread() throws InterruptedException {
+        ReferenceScope scope = new ReferenceScope(runtime, null);
+        scope.add(1);
+
+        CompletableFuture<Void> future = CompletableFuture.runAsync(scope::close);
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+        verify(runtime, never()).releaseScopedReferences(any());
+        scope.close();
+        verify(runtime).releaseScopedReferences(new long[]{1});
+    }
+}
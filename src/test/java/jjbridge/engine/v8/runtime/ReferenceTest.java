@@ -1,38 +1,40 @@
 package jjbridge.engine.v8.runtime;
 
 import jjbridge.api.value.JSType;
+import jjbridge.api.value.JSValue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.*;
 
 public class ReferenceTest {
     private Reference reference;
     private JSType jsType;
-    private ReferenceTypeGetter referenceTypeGetter;
-    private EqualityChecker equalityChecker;
+    private Runtime runtime;
     private int handle;
 
     @BeforeEach
     public void before() {
         handle = 1;
         jsType = JSType.Null;
-        referenceTypeGetter = h -> {
-            if (h == handle) return JSType.External;
-            throw new IllegalArgumentException();
-        };
-        equalityChecker = (aHandle, bHandle) -> aHandle == bHandle;
-        reference = new Reference(handle, jsType, referenceTypeGetter, equalityChecker);
+        runtime = mock(Runtime.class);
+        when(runtime.referencesEqual(anyLong(), anyLong())).thenAnswer(i ->
+                (long) i.getArgument(0) == (long) i.getArgument(1));
+        reference = new Reference(handle, jsType, runtime);
     }
 
     @Test
     public void ctor() {
         assertEquals(reference, reference);
-        assertEquals(new Reference(handle, jsType, referenceTypeGetter, equalityChecker), reference);
+        assertEquals(new Reference(handle, jsType, runtime), reference);
         assertNotEquals(null, reference);
-        assertNotEquals(new Reference(handle+3, jsType, referenceTypeGetter, equalityChecker), reference);
-        assertNotEquals(new Reference(handle, jsType, h -> null, (aHandle, bHandle) -> false), reference);
+        assertNotEquals(new Reference(handle+3, jsType, runtime), reference);
+        Runtime otherRuntime = mock(Runtime.class);
+        assertNotEquals(new Reference(handle+3, jsType, otherRuntime), reference);
         assertNotEquals(new Object(), reference); // other object not instance of Reference
     }
 
@@ -43,6 +45,82 @@ public class ReferenceTest {
 
     @Test
     public void getActualType() {
-        assertEquals(referenceTypeGetter.getType(handle), reference.getActualType());
+        assertEquals(jsType, reference.getActualType());
+        reference.invalidateActualType();
+        when(runtime.getReferenceType(handle)).thenReturn(JSType.External);
+        assertEquals(JSType.External, reference.getActualType());
+    }
+
+    @Test
+    public void ctorRegistersWithRuntime() {
+        Runtime owner = mock(Runtime.class);
+        Reference tracked = new Reference(handle, jsType, owner);
+        verify(owner).track(same(tracked));
+    }
+
+    @Test
+    public void actualTypeIsCachedUntilInvalidated() {
+        when(runtime.getReferenceType(handle)).thenReturn(JSType.Number, JSType.String);
+        reference.invalidateActualType();
+        assertNull(reference.cachedActualType());
+
+        assertEquals(JSType.Number, reference.getActualType());
+        assertEquals(JSType.Number, reference.getActualType());
+        verify(runtime, times(1)).getReferenceType(handle);
+
+        reference.invalidateActualType();
+        assertEquals(JSType.String, reference.getActualType());
+        verify(runtime, times(2)).getReferenceType(handle);
+    }
+
+    @Test
+    public void ctorKnowsActualType() {
+        Reference tracked = new Reference(handle, JSType.Date, runtime);
+        assertEquals(JSType.Date, tracked.getActualType());
+        verify(runtime, never()).getReferenceType(anyLong());
+    }
+
+    @Test
+    public void hashCodeIsCachedUntilValueIsReplaced() {
+        when(runtime.getIdentityHash(handle)).thenReturn(42, 7);
+        assertEquals(42, reference.hashCode());
+        assertEquals(42, reference.hashCode());
+        verify(runtime, times(1)).getIdentityHash(handle);
+
+        reference.valueReplaced(JSType.Number);
+        assertEquals(JSType.Number, reference.cachedActualType());
+        assertEquals(7, reference.hashCode());
+        verify(runtime, times(2)).getIdentityHash(handle);
+    }
+
+    @Test
+    public void equalsAvoidsNativeCallsWhenPossible() {
+        when(runtime.getIdentityHash(anyLong())).thenAnswer(i -> (int) (long) i.getArgument(0));
+        Reference other = new Reference(handle + 1, jsType, runtime);
+        Reference same = new Reference(handle, jsType, runtime);
+        reference.hashCode();
+        other.hashCode();
+
+        assertEquals(reference, same);
+        assertNotEquals(reference, other);
+        verify(runtime, never()).referencesEqual(anyLong(), anyLong());
+    }
+
+    @Test
+    public void wrapperIsCachedForActualTypeOnly() {
+        JSValue wrapper = mock(JSValue.class);
+        reference.cacheWrapper(JSType.Object, wrapper);
+        assertNull(reference.cachedWrapper());
+
+        reference.cacheWrapper(jsType, wrapper);
+        assertSame(wrapper, reference.cachedWrapper());
+        reference.valueReplaced(jsType);
+        assertSame(wrapper, reference.cachedWrapper());
+
+        reference.valueReplaced(JSType.Number);
+        assertNull(reference.cachedWrapper());
+        reference.cacheWrapper(JSType.Number, wrapper);
+        reference.invalidateActualType();
+        assertNull(reference.cachedWrapper());
     }
 }
@@ -0,0 +1,91 @@
+package jjbridge.engine.v8.runtime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReleaseQueueTest {
+    private ReleaseQueue queue;
+
+    @BeforeEach
+    public void before() {
+        queue = new ReleaseQueue();
+    }
+
+    @Test
+    public void addAndDrain() {
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.drain().length);
+
+        assertEquals(1, queue.add(10));
+        assertEquals(2, queue.add(20));
+        assertEquals(3, queue.add(30));
+        assertFalse(queue.isEmpty());
+
+        assertArrayEquals(new long[]{10, 20, 30}, queue.drain());
+        assertTrue(queue.isEmpty());
+        assertEquals(1, queue.add(40));
+    }
+
+    @Test
+    public void concurrentAddsAndDrainsLoseNothing() throws InterruptedException {
+        Set<Long> drained = ConcurrentHashMap.newKeySet();
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            long base = i * 10000L;
+            producers[i] = new Thread(() -> {
+                for (long j = 0; j < 10000; j++) {
+                    queue.add(base + j);
+                }
+            });
+        }
+        Thread consumer = new Thread(() -> {
+            while (drained.size() < 40000) {
+                for (long handle : queue.drain()) {
+                    assertTrue(drained.add(handle));
+                }
+            }
+        });
+
+        consumer.start();
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        consumer.join(5000);
+
+        assertEquals(40000, drained.size());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void concurrentDrainsAreDisjoint() throws InterruptedException {
+        for (long i = 0; i < 10000; i++) {
+            queue.add(i);
+        }
+        long[][] results = new long[2][];
+        Thread first = new Thread(() -> results[0] = queue.drain());
+        Thread second = new Thread(() -> results[1] = queue.drain());
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        Set<Long> all = new HashSet<>();
+        for (long[] result : results) {
+            Arrays.stream(result).forEach(handle -> assertTrue(all.add(handle)));
+        }
+        for (long handle : queue.drain()) {
+            assertTrue(all.add(handle));
+        }
+        assertEquals(10000, all.size());
+    }
+}
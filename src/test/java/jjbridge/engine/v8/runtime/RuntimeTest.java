@@ -10,9 +10,12 @@ import jjbridge.engine.v8.V8Engine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -929,6 +932,207 @@ public class RuntimeTest {
         }
     }
 
+    @Test
+    public void runtimeIsUnlockedDuringFunctionCallback() {
+        try (JSRuntime runtime = engine.newRuntime())
+        {
+            CountDownLatch latch = new CountDownLatch(1);
+            Long[] otherThreadResult = new Long[1];
+
+            JSReference functionRef = runtime.newReference(JSType.Function);
+            runtime.<JSFunction<?>>resolveReference(functionRef).setFunction(jsReferences -> {
+                // Another thread must be able to use the runtime while this callback is still running
+                Thread thread = new Thread(() -> {
+                    JSReference result = runtime.executeScript("20 + 22");
+                    otherThreadResult[0] = runtime.<JSNumber>resolveReference(result).getLongValue();
+                    latch.countDown();
+                });
+                thread.start();
+                try
+                {
+                    assertTrue(latch.await(5, TimeUnit.SECONDS));
+                }
+                catch (InterruptedException e)
+                {
+                    fail(e.getMessage());
+                }
+                return runtime.newReference(JSType.Undefined);
+            });
+
+            JSReference outerFunc = runtime.executeScript("(func) => func()");
+            runtime.<JSFunction<?>>resolveReference(outerFunc).invoke(outerFunc, functionRef);
+            assertEquals(42L, otherThreadResult[0]);
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void differentRuntimesRunConcurrently() {
+        final int runtimeCount = 4;
+        try
+        {
+            JSRuntime[] runtimes = new JSRuntime[runtimeCount];
+            Thread[] threads = new Thread[runtimeCount];
+            Long[] results = new Long[runtimeCount];
+            CountDownLatch allStarted = new CountDownLatch(runtimeCount);
+            for (int i = 0; i < runtimeCount; i++)
+            {
+                int finalI = i;
+                runtimes[i] = engine.newRuntime();
+                JSReference waitRef = runtimes[i].newReference(JSType.Function);
+                runtimes[i].<JSFunction<?>>resolveReference(waitRef).setFunction(jsReferences -> {
+                    allStarted.countDown();
+                    try
+                    {
+                        // Deadlocks if runtimes are not independent from each other
+                        assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+                    }
+                    catch (InterruptedException e)
+                    {
+                        fail(e.getMessage());
+                    }
+                    return runtimes[finalI].newReference(JSType.Undefined);
+                });
+                runtimes[i].globalObject().set("waitOthers", waitRef);
+                threads[i] = new Thread(() -> {
+                    JSReference result = runtimes[finalI].executeScript("waitOthers(); " + finalI + " * 10");
+                    results[finalI] = runtimes[finalI].<JSNumber>resolveReference(result).getLongValue();
+                });
+            }
+
+            for (Thread t : threads)
+            {
+                t.start();
+            }
+            for (Thread t : threads)
+            {
+                t.join();
+            }
+            for (int i = 0; i < runtimeCount; i++)
+            {
+                assertEquals(i * 10L, results[i]);
+                runtimes[i].close();
+            }
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void asyncRequiresEventLoop() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            assertThrows(IllegalStateException.class, () -> runtime.executeScriptAsync("1"));
+            runtime.startEventLoop();
+            assertThrows(IllegalStateException.class, runtime::startEventLoop);
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void eventLoopAsyncOperations() {
+        try (Runtime runtime = engine.newEventLoopRuntime()) {
+            Reference object = (Reference) runtime.executeScriptAsync("({ k: 40, add: function(x) { return this.k + x; } })")
+                    .get(5, TimeUnit.SECONDS);
+
+            Reference two = runtime.submit(() -> {
+                Reference ref = runtime.newReference(JSType.Number);
+                runtime.<JSNumber>resolveReference(ref).setLongValue(2L);
+                return ref;
+            }).get(5, TimeUnit.SECONDS);
+            Reference add = runtime.getPropertyAsync(object, "add").get(5, TimeUnit.SECONDS);
+            Reference result = runtime.invokeAsync(add, object, two).get(5, TimeUnit.SECONDS);
+            assertEquals(42L, runtime.<JSNumber>resolveReference(result).getLongValue());
+
+            runtime.setPropertyAsync(object, "k", two).get(5, TimeUnit.SECONDS);
+            result = runtime.invokeAsync(add, object, two).get(5, TimeUnit.SECONDS);
+            assertEquals(4L, runtime.<JSNumber>resolveReference(result).getLongValue());
+
+            try {
+                runtime.executeScriptAsync("throw new Error('async')").get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertEquals(ExecutionException.class, e.getCause().getClass());
+            }
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void eventLoopRunsMicrotasksAndTimers() {
+        try (Runtime runtime = engine.newEventLoopRuntime()) {
+            runtime.executeScriptAsync("var resolved = false; Promise.resolve().then(() => resolved = true);")
+                    .get(5, TimeUnit.SECONDS);
+            JSReference resolved = runtime.executeScriptAsync("resolved").get(5, TimeUnit.SECONDS);
+            assertTrue(runtime.<JSBoolean>resolveReference(resolved).getValue());
+
+            CompletableFuture<JSReference> timer = new CompletableFuture<>();
+            runtime.schedule(() -> timer.complete(runtime.executeScript("resolved")), 20, TimeUnit.MILLISECONDS);
+            assertTrue(runtime.<JSBoolean>resolveReference(timer.get(5, TimeUnit.SECONDS)).getValue());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void contextsHaveSeparateGlobals() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Runtime context1 = runtime.newContext();
+            Runtime context2 = context1.newContext();
+            assertNotEquals(runtime, context1);
+            assertNotEquals(context1, context2);
+
+            runtime.executeScript("var tenant = 'root';");
+            context1.executeScript("var tenant = 'first';");
+            context2.executeScript("var tenant = 'second';");
+
+            assertEquals("root", runtime.<JSString>resolveReference(runtime.executeScript("tenant")).getValue());
+            assertEquals("first", context1.<JSString>resolveReference(context1.executeScript("tenant")).getValue());
+            assertEquals("second", context2.<JSString>resolveReference(context2.executeScript("tenant")).getValue());
+
+            JSReference ref = context1.newReference(JSType.Number);
+            context1.<JSNumber>resolveReference(ref).setLongValue(42L);
+            context1.globalObject().set("answer", ref);
+            assertEquals(42L, context1.<JSNumber>resolveReference(context1.executeScript("answer")).getLongValue());
+            assertTrue(runtime.resolveReference(runtime.executeScript("this.answer")) instanceof JSUndefined);
+
+            context1.close();
+            try {
+                context1.executeScript("tenant");
+                fail();
+            } catch (Exception e) {
+                assertEquals(RuntimeException.class, e.getClass());
+            }
+            assertEquals("second", context2.<JSString>resolveReference(context2.executeScript("tenant")).getValue());
+            assertEquals("root", runtime.<JSString>resolveReference(runtime.executeScript("tenant")).getValue());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void closingRuntimeClosesContexts() {
+        try {
+            Runtime runtime = (Runtime) engine.newRuntime();
+            Runtime context = runtime.newContext();
+            context.executeScript("undefined;");
+            runtime.close();
+
+            try {
+                context.executeScript("undefined");
+                fail();
+            } catch (Exception e) {
+                assertEquals(RuntimeException.class, e.getClass());
+            }
+            assertThrows(IllegalStateException.class, runtime::newContext);
+            context.close();
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
     @Test
     public void globalObject() {
         String myPropertyName = "myProperty";
@@ -982,10 +1186,6 @@ public class RuntimeTest {
     }
 
     protected static class ReferenceMonitorForTest extends ReferenceMonitor<Reference> {
-        public ReferenceMonitorForTest() {
-            super(50);
-        }
-
         public CleanUpAction additionalAction;
 
         @Override
@@ -996,4 +1196,565 @@ public class RuntimeTest {
             super.clean(ref);
         }
     }
+
+    @Test
+    public void postMessageClonesValuesBetweenRuntimes() {
+        try (Runtime source = (Runtime) engine.newRuntime(); Runtime target = (Runtime) engine.newRuntime()) {
+            Reference message = (Reference) source.executeScript(
+                    "var m = {name: 'msg', values: [1, 2, 3], when: new Date(0), tags: new Map([['a', 1]])};"
+                    + "m.self = m; m;");
+            Reference copy = source.postMessage(message, target);
+            target.globalObject().set("copy", copy);
+
+            assertEquals("msg", target.<JSString>resolveReference(target.executeScript("copy.name")).getValue());
+            assertEquals(6L, target.<JSNumber>resolveReference(
+                    target.executeScript("copy.values.reduce((a, b) => a + b)")).getLongValue());
+            assertEquals(0L, target.<JSNumber>resolveReference(
+                    target.executeScript("copy.when.getTime()")).getLongValue());
+            assertEquals(1L, target.<JSNumber>resolveReference(target.executeScript("copy.tags.get('a')")).getLongValue());
+            assertTrue(target.<JSBoolean>resolveReference(target.executeScript("copy.self === copy")).getValue());
+
+            source.executeScript("m.name = 'changed';");
+            assertEquals("msg", target.<JSString>resolveReference(target.executeScript("copy.name")).getValue());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void valuesOfClosedContextOutliveIt() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Runtime context = runtime.newContext();
+            JSReference function = context.newReference(JSType.Function);
+            context.<JSFunction<JSReference>>resolveReference(function).setFunction(arguments -> arguments[0]);
+            JSReference external = context.newReference(JSType.External);
+            context.<JSExternal<Object>>resolveReference(external).setValue(new Object());
+            runtime.globalObject().set("contextFunction", function);
+            runtime.globalObject().set("contextExternal", external);
+            assertEquals(3, runtime.evalInt("contextFunction(3)"));
+            context.close();
+
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> runtime.executeScript("contextFunction(3)"));
+            assertTrue(exception.getMessage().contains("released"));
+
+            runtime.executeScript("contextFunction = undefined; contextExternal = undefined;");
+            runtime.collectGarbage();
+            assertEquals(2, runtime.evalInt("1 + 1"));
+        }
+    }
+
+    @Test
+    public void serializedValueCanBeDeserializedMoreThanOnce() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Runtime context = runtime.newContext();
+            SerializedValue value = runtime.serialize((Reference) runtime.executeScript("({answer: 42})"));
+            assertTrue(value.size() > 0);
+
+            runtime.globalObject().set("first", runtime.deserialize(value));
+            context.globalObject().set("second", context.deserialize(value));
+            assertEquals(42L, runtime.<JSNumber>resolveReference(runtime.executeScript("first.answer")).getLongValue());
+            assertEquals(42L, context.<JSNumber>resolveReference(context.executeScript("second.answer")).getLongValue());
+
+            value.close();
+            value.close();
+            assertTrue(value.isClosed());
+            assertThrows(IllegalStateException.class, () -> runtime.deserialize(value));
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void serializingNonCloneableValueThrows() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Reference function = (Reference) runtime.executeScript("({callback: function() {}})");
+            assertThrows(ExecutionException.class, () -> runtime.serialize(function));
+            assertEquals(2L, runtime.<JSNumber>resolveReference(runtime.executeScript("1 + 1")).getLongValue());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void deadlineTerminatesRunawayScripts() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            long start = System.nanoTime();
+            assertThrows(TimeoutException.class, () -> runtime.executeScript("while (true) {}", 50, TimeUnit.MILLISECONDS));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+            // The runtime is still usable after termination
+            assertEquals(2L, runtime.<JSNumber>resolveReference(runtime.executeScript("1 + 1")).getLongValue());
+
+            Reference function = (Reference) runtime.executeScript("(function(n) { while (n > 0) {} return n; })");
+            Reference zero = runtime.newReference(JSType.Number);
+            runtime.<JSNumber>resolveReference(zero).setLongValue(0L);
+            Reference one = runtime.newReference(JSType.Number);
+            runtime.<JSNumber>resolveReference(one).setLongValue(1L);
+            Reference receiver = runtime.newReference(JSType.Undefined);
+            assertThrows(TimeoutException.class, () -> runtime.invoke(function, receiver, 50, TimeUnit.MILLISECONDS, one));
+            assertEquals(0L, runtime.<JSNumber>resolveReference(
+                    runtime.invoke(function, receiver, 1, TimeUnit.SECONDS, zero)).getLongValue());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void functionsOutliveTheSlotsOfTheirReferences() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            try (ReferenceScope scope = runtime.openScope()) {
+                Reference first = runtime.newReference(JSType.Function);
+                runtime.<JSFunction<Reference>>resolveReference(first).setFunction(arguments -> {
+                    Reference result = runtime.newReference(JSType.Number);
+                    runtime.setInt(result, 1);
+                    return result;
+                });
+                runtime.globalObject().set("first", first);
+                assertTrue(scope.size() >= 1);
+            }
+
+            // Allocated in the slot released by the scope
+            Reference second = runtime.newReference(JSType.Function);
+            runtime.<JSFunction<Reference>>resolveReference(second).setFunction(arguments -> {
+                Reference result = runtime.newReference(JSType.Number);
+                runtime.setInt(result, 2);
+                return result;
+            });
+            runtime.globalObject().set("second", second);
+
+            assertEquals(1, runtime.evalInt("first()"));
+            assertEquals(2, runtime.evalInt("second()"));
+        }
+    }
+
+    @Test
+    public void terminationDoesNotOutliveTheTerminatedCall() throws Exception {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            for (int i = 0; i < 20; i++) {
+                assertThrows(TimeoutException.class,
+                        () -> runtime.executeScript("while (true) {}", 10, TimeUnit.MILLISECONDS));
+                // The next execution, even by another thread, is not terminated in turn
+                assertEquals(2, CompletableFuture.supplyAsync(() -> runtime.evalInt("1 + 1")).get());
+            }
+        }
+    }
+
+    @Test
+    public void deadlineDoesNotAffectFastScripts() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(2L, runtime.<JSNumber>resolveReference(
+                        runtime.executeScript("1 + 1", 1, TimeUnit.SECONDS)).getLongValue());
+            }
+            ExecutionException error = assertThrows(ExecutionException.class,
+                    () -> runtime.executeScript("throw new Error('failure')", 1, TimeUnit.SECONDS));
+            assertFalse(error instanceof TimeoutException);
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void fairSchedulerPreemptsLongRunningScripts() {
+        try (Runtime heavy = (Runtime) engine.newRuntime(); Runtime light = (Runtime) engine.newRuntime();
+             FairScheduler scheduler = new FairScheduler(1, 5, TimeUnit.MILLISECONDS)) {
+            scheduler.register(heavy, 1);
+            scheduler.register(light, 1);
+
+            CountDownLatch heavyStarted = new CountDownLatch(1);
+            CompletableFuture<Long> heavyResult = CompletableFuture.supplyAsync(() -> scheduler.execute(heavy, () -> {
+                heavyStarted.countDown();
+                return heavy.<JSNumber>resolveReference(heavy.executeScript(
+                        "let i = 0; const end = Date.now() + 500; while (Date.now() < end) { i++; } 1;")).getLongValue();
+            }));
+            heavyStarted.await();
+
+            assertEquals(2L, scheduler.execute(light,
+                    () -> light.<JSNumber>resolveReference(light.executeScript("1 + 1")).getLongValue()));
+            assertFalse(heavyResult.isDone());
+            assertEquals(1L, heavyResult.get());
+
+            assertTrue(scheduler.getUsage(heavy).getPreemptions() >= 1);
+            assertTrue(scheduler.getUsage(heavy).getCpuTimeNanos() > 0);
+            assertEquals(1, scheduler.getUsage(light).getSlices());
+        } catch (Exception e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void referenceMonitorIsSharedBetweenRuntimes() {
+        int[] counter = {0};
+        ReferenceMonitorForTest referenceMonitor = new ReferenceMonitorForTest();
+        referenceMonitor.additionalAction = () -> counter[0] += 1;
+
+        try (JSRuntime survivor = engine.newRuntime(referenceMonitor)) {
+            JSRuntime closed = engine.newRuntime(referenceMonitor);
+            for (int i = 0; i < 50; i++) {
+                closed.<JSNumber>resolveReference(closed.newReference(JSType.Number)).setLongValue((long) i);
+                survivor.<JSNumber>resolveReference(survivor.newReference(JSType.Number)).setLongValue((long) i);
+            }
+            // References of a closed runtime are reclaimed without touching its released isolate
+            closed.close();
+
+            MemoryTimeWaster.waste(1000000);
+            System.gc();
+            Thread.sleep(1500);
+
+            assertEquals(100, counter[0]);
+            assertTrue(referenceMonitor.isAlive());
+            assertEquals(2L, survivor.<JSNumber>resolveReference(survivor.executeScript("1 + 1")).getLongValue());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+        referenceMonitor.interrupt();
+    }
+
+    @Test
+    public void referenceScopeReleasesReferencesDeterministically() {
+        int[] counter = {0};
+        ReferenceMonitorForTest referenceMonitor = new ReferenceMonitorForTest();
+        referenceMonitor.additionalAction = () -> counter[0] += 1;
+
+        try (Runtime runtime = (Runtime) engine.newRuntime(referenceMonitor)) {
+            JSReference escaped;
+            try (ReferenceScope outer = runtime.openScope()) {
+                try (ReferenceScope inner = runtime.openScope()) {
+                    for (int i = 0; i < 1000; i++) {
+                        runtime.<JSNumber>resolveReference(runtime.newReference(JSType.Number)).setLongValue((long) i);
+                    }
+                    JSReference result = runtime.executeScript("({answer: 42})");
+                    assertTrue(inner.size() >= 1001);
+                    escaped = inner.escape(result);
+                    assertThrows(IllegalStateException.class, outer::close);
+                }
+                assertEquals(1, outer.size());
+                escaped = outer.escape(escaped);
+            }
+
+            runtime.globalObject().set("kept", escaped);
+            assertEquals(42L, runtime.<JSNumber>resolveReference(runtime.executeScript("kept.answer")).getLongValue());
+
+            MemoryTimeWaster.waste(1000000);
+            System.gc();
+            Thread.sleep(1500);
+            // Scoped references never reach the monitor: only the few ones created outside the scopes do
+            assertTrue(counter[0] < 10);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+        referenceMonitor.interrupt();
+    }
+
+    @Test
+    public void handleStatisticsTrackHandleReuse() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            HandleStatistics before = runtime.getHandleStatistics();
+            try (ReferenceScope scope = runtime.openScope()) {
+                for (int i = 0; i < 1000; i++) {
+                    runtime.newReference(JSType.Number);
+                }
+                assertEquals(1000, scope.size());
+            }
+            HandleStatistics afterFirst = runtime.getHandleStatistics();
+            assertEquals(before.getAllocations() + 1000, afterFirst.getAllocations());
+            assertEquals(before.getReleases() + 1000, afterFirst.getReleases());
+            assertEquals(before.getLiveHandles(), afterFirst.getLiveHandles());
+            assertTrue(afterFirst.getCapacity() >= 1000);
+
+            try (ReferenceScope scope = runtime.openScope()) {
+                for (int i = 0; i < 1000; i++) {
+                    runtime.newReference(JSType.Number);
+                }
+                assertEquals(1000, scope.size());
+            }
+            // Released slots are reused, so the second batch needs no new chunk
+            HandleStatistics afterSecond = runtime.getHandleStatistics();
+            assertEquals(afterFirst.getChunks(), afterSecond.getChunks());
+            assertEquals(afterFirst.getLiveHandles(), afterSecond.getLiveHandles());
+
+            Runtime context = runtime.newContext();
+            context.newReference(JSType.Number);
+            assertEquals(afterSecond.getAllocations() + 1, runtime.getHandleStatistics().getAllocations());
+        }
+    }
+
+    @Test
+    public void undefinedNullAndGlobalObjectMapToCanonicalReferences() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            HandleStatistics before = runtime.getHandleStatistics();
+            Reference undefined = runtime.newReference(JSType.Undefined);
+            assertSame(undefined, runtime.newReference(JSType.Undefined));
+            assertSame(undefined, runtime.executeScript("undefined"));
+            assertSame(runtime.newReference(JSType.Null), runtime.executeScript("null"));
+            assertSame(runtime.executeScript("globalThis"), runtime.executeScript("this"));
+            // None of the above allocated a handle
+            assertEquals(before.getAllocations(), runtime.getHandleStatistics().getAllocations());
+
+            // Booleans can be replaced through their reference, so each one gets its own
+            Reference trueReference = (Reference) runtime.executeScript("1 < 2");
+            assertNotSame(trueReference, runtime.executeScript("true"));
+            JSBoolean scriptTrue = runtime.resolveReference(trueReference);
+            assertTrue(scriptTrue.getValue());
+            scriptTrue.setValue(false);
+            assertFalse(scriptTrue.getValue());
+            JSBoolean otherTrue = runtime.resolveReference(runtime.executeScript("true"));
+            assertTrue(otherTrue.getValue());
+
+            Runtime context = runtime.newContext();
+            assertNotSame(runtime.executeScript("globalThis"), context.executeScript("globalThis"));
+            assertSame(context.executeScript("globalThis"), context.executeScript("globalThis"));
+        }
+    }
+
+    @Test
+    public void actualTypesAreReadInBulk() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Reference[] references = {
+                    (Reference) runtime.executeScript("42"),
+                    (Reference) runtime.executeScript("'text'"),
+                    (Reference) runtime.executeScript("[1, 2]"),
+                    (Reference) runtime.executeScript("new Date()"),
+                    (Reference) runtime.executeScript("(function() {})"),
+                    runtime.newReference(JSType.Undefined)
+            };
+            for (Reference reference : references) {
+                reference.invalidateActualType();
+            }
+
+            JSType[] types = runtime.getActualTypes(references);
+            assertArrayEquals(new JSType[]{JSType.Number, JSType.String, JSType.Array, JSType.Date, JSType.Function,
+                    JSType.Undefined}, types);
+            for (int i = 0; i < references.length; i++) {
+                assertEquals(types[i], references[i].cachedActualType());
+            }
+        }
+    }
+
+    @Test
+    public void equalReferencesHashAlike() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            runtime.executeScript("var shared = {}; var text = 'te' + 'xt';");
+            Map<Reference, String> values = new HashMap<>();
+            values.put((Reference) runtime.executeScript("shared"), "object");
+            values.put((Reference) runtime.executeScript("text"), "string");
+            values.put((Reference) runtime.executeScript("0"), "number");
+
+            assertEquals("object", values.get((Reference) runtime.executeScript("shared")));
+            assertEquals("string", values.get((Reference) runtime.executeScript("'text'")));
+            assertEquals("number", values.get((Reference) runtime.executeScript("-0")));
+            assertNull(values.get((Reference) runtime.executeScript("({})")));
+
+            Reference number = (Reference) runtime.executeScript("1");
+            int hash = number.hashCode();
+            runtime.<JSNumber>resolveReference(number).setValue(2.0);
+            assertEquals(((Reference) runtime.executeScript("2")).hashCode(), number.hashCode());
+            assertNotEquals(hash, number.hashCode());
+        }
+    }
+
+    @Test
+    public void resolvingAgainReturnsTheSameWrapper() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Reference object = (Reference) runtime.executeScript("({answer: 42})");
+            JSObject<Reference> wrapper = runtime.resolveReference(object);
+            assertSame(wrapper, runtime.resolveReference(object));
+            assertSame(runtime.globalObject(), runtime.globalObject());
+
+            Reference value = runtime.newReference(JSType.Number);
+            JSNumber number = runtime.resolveReference(value);
+            number.setValue(1.0);
+            assertSame(number, runtime.resolveReference(value));
+        }
+    }
+
+    @Test
+    public void evalConvertsResultsWithoutReferences() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            runtime.evalVoid("var rule = {limit: 10, name: 'limit'};");
+            HandleStatistics before = runtime.getHandleStatistics();
+            assertEquals(12.5, runtime.evalDouble("rule.limit + 2.5"));
+            assertEquals(3, runtime.evalInt("rule.limit / 3"));
+            assertTrue(runtime.evalBoolean("rule.limit > 5"));
+            assertFalse(runtime.evalBoolean("''"));
+            assertEquals("limit=10", runtime.evalString("rules", "rule.name + '=' + rule.limit"));
+            assertEquals("undefined", runtime.evalString("undefined"));
+            assertTrue(Double.isNaN(runtime.evalDouble("rule")));
+            assertEquals(before.getAllocations(), runtime.getHandleStatistics().getAllocations());
+
+            assertThrows(CompilationException.class, () -> runtime.evalDouble("rule."));
+            assertThrows(ExecutionException.class, () -> runtime.evalInt("({valueOf() { throw new Error(); }})"));
+            assertThrows(ExecutionException.class, () -> runtime.evalVoid("undefinedFunction()"));
+        }
+    }
+
+    @Test
+    public void primitiveAccessorsReadAndWriteWithoutResolving() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Reference number = (Reference) runtime.executeScript("var n = 2.5; n");
+            assertEquals(2.5, runtime.getDouble(number));
+            assertEquals(2, runtime.getInt(number));
+            assertTrue(runtime.getBoolean(number));
+            assertEquals("2.5", runtime.getString(number));
+
+            runtime.setInt(number, 7);
+            assertEquals(7.0, runtime.getDouble(number));
+            runtime.setDouble(number, -1.5);
+            assertEquals(-1, runtime.getInt(number));
+            runtime.setString(number, "text");
+            assertEquals(JSType.String, number.getActualType());
+            assertEquals("text", runtime.getString(number));
+            runtime.setBoolean(number, false);
+            assertEquals(JSType.Boolean, number.getActualType());
+            assertFalse(runtime.getBoolean(number));
+
+            Reference nullReference = (Reference) runtime.executeScript("null");
+            assertThrows(UnsupportedOperationException.class, () -> runtime.setDouble(nullReference, 1));
+            assertFalse(runtime.getBoolean(nullReference));
+        }
+    }
+
+    @Test
+    public void failedConversionsThrowExecutionException() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Reference throwing = (Reference) runtime.executeScript(
+                    "({valueOf() { throw new Error('valueOf') }, toString() { throw new Error('toString') }})");
+            assertThrows(ExecutionException.class, () -> runtime.getDouble(throwing));
+            assertThrows(ExecutionException.class, () -> runtime.getInt(throwing));
+            assertThrows(ExecutionException.class, () -> runtime.getString(throwing));
+
+            Reference symbol = (Reference) runtime.executeScript("Symbol('s')");
+            assertThrows(ExecutionException.class, () -> runtime.getDouble(symbol));
+            assertThrows(ExecutionException.class, () -> runtime.getString(symbol));
+
+            // The runtime is still usable after the failed conversions
+            assertEquals(2, runtime.evalInt("1 + 1"));
+        }
+    }
+
+    @Test
+    public void arraysAreReadInBulk() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Reference numbers = (Reference) runtime.executeScript("[1.5, '2', -3.7, true, 2 ** 40]");
+            assertArrayEquals(new double[]{1.5, 2, -3.7, 1, Math.pow(2, 40)}, runtime.getArrayAsDoubles(numbers));
+            assertArrayEquals(new int[]{1, 2, -3, 1, 0}, runtime.getArrayAsInts(numbers));
+            assertArrayEquals(new long[]{1, 2, -3, 1, 1L << 40}, runtime.getArrayAsLongs(numbers));
+            assertArrayEquals(new long[]{-1, 5}, runtime.getArrayAsLongs((Reference) runtime.executeScript("[-1n, 5n]")));
+            assertArrayEquals(new String[]{"1.5", "2", "-3.7", "true", "1099511627776"},
+                    runtime.getArrayAsStrings(numbers));
+
+            Reference mixed = (Reference) runtime.executeScript("[{a: 1}, 'b', null, [2]]");
+            Reference[] elements = runtime.getArrayElements(mixed, 1, 10);
+            assertEquals(3, elements.length);
+            assertEquals(JSType.String, elements[0].getActualType());
+            assertSame(runtime.newReference(JSType.Null), elements[1]);
+            assertEquals(JSType.Array, elements[2].getActualType());
+            assertEquals(0, runtime.getArrayElements(mixed, 4, 4).length);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> runtime.getArrayElements(mixed, 2, 1));
+            assertThrows(IllegalArgumentException.class, () -> runtime.getArrayAsDoubles(elements[0]));
+            assertThrows(ExecutionException.class, () -> runtime.getArrayAsDoubles(
+                    (Reference) runtime.executeScript("[1, {valueOf() { throw new Error(); }}]")));
+        }
+    }
+
+    @Test
+    public void arraysAreWrittenInBulk() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Reference numbers = runtime.newArrayFromDoubles(new double[]{1, 2.5, -3});
+            assertEquals(JSType.Array, numbers.getActualType());
+            assertArrayEquals(new double[]{1, 2.5, -3}, runtime.getArrayAsDoubles(numbers));
+
+            runtime.setArrayRange(numbers, 2, new double[]{4, 5});
+            assertArrayEquals(new double[]{1, 2.5, 4, 5}, runtime.getArrayAsDoubles(numbers));
+
+            Reference strings = runtime.newArrayFromStrings(new String[]{"a", null, "c"});
+            assertArrayEquals(new String[]{"a", "null", "c"}, runtime.getArrayAsStrings(strings));
+
+            Reference undefined = runtime.newReference(JSType.Undefined);
+            Reference nested = runtime.newArrayFromReferences(numbers, strings, undefined);
+            Reference[] elements = runtime.getArrayElements(nested, 0, 3);
+            assertTrue(runtime.referencesEqual(numbers.handle, elements[0].handle));
+            assertTrue(runtime.referencesEqual(strings.handle, elements[1].handle));
+            assertSame(undefined, elements[2]);
+            assertEquals(0, runtime.getArrayElements(runtime.newArrayFromReferences(), 0, 1).length);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> runtime.setArrayRange(numbers, -1, new double[0]));
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> runtime.setArrayRange(numbers, Integer.MAX_VALUE - 1, new double[2]));
+            assertThrows(IllegalArgumentException.class, () -> runtime.setArrayRange(undefined, 0, new double[0]));
+        }
+    }
+
+    @Test
+    public void arrayBuffersShareMemoryWithJava() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(8);
+            direct.put(0, (byte) 7).position(2);
+            Reference wrapped = runtime.newArrayBuffer(direct);
+            runtime.globalObject().set("wrapped", wrapped);
+            assertEquals(6, runtime.evalInt("wrapped.byteLength"));
+
+            runtime.evalVoid("new Uint8Array(wrapped).fill(3, 0, 2)");
+            assertEquals(7, direct.get(0));
+            assertEquals(3, direct.get(2));
+            assertEquals(3, direct.get(3));
+            assertEquals(0, direct.get(4));
+
+            ByteBuffer contents = runtime.getArrayBufferContents(wrapped);
+            assertTrue(contents.isDirect());
+            assertEquals(6, contents.capacity());
+            contents.put(5, (byte) 9);
+            assertEquals(9, runtime.evalInt("new Uint8Array(wrapped)[5]"));
+
+            Reference view = (Reference) runtime.executeScript("new Int32Array([1, 2, 3, 4]).subarray(1, 3)");
+            assertEquals(JSType.Object, view.getActualType());
+            ByteBuffer range = runtime.getArrayBufferContents(view);
+            assertEquals(8, range.capacity());
+            assertEquals(2, range.getInt(0));
+            assertEquals(3, range.getInt(4));
+
+            assertThrows(IllegalArgumentException.class, () -> runtime.newArrayBuffer(ByteBuffer.allocate(4)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> runtime.newArrayBuffer(ByteBuffer.allocateDirect(4).asReadOnlyBuffer()));
+            assertThrows(IllegalArgumentException.class,
+                    () -> runtime.getArrayBufferContents(runtime.newReference(JSType.Object)));
+        }
+    }
+
+    @Test
+    public void detachedArrayBuffersHaveEmptyContents() {
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            // Growing a WebAssembly memory detaches its previous buffer
+            Reference detached = (Reference) runtime.executeScript(
+                    "var memory = new WebAssembly.Memory({initial: 1}); var buffer = memory.buffer; memory.grow(1); "
+                            + "buffer");
+            assertEquals(0, runtime.evalInt("buffer.byteLength"));
+            ByteBuffer contents = runtime.getArrayBufferContents(detached);
+            assertEquals(0, contents.capacity());
+            assertFalse(contents.isDirect());
+
+            ByteBuffer empty = runtime.getArrayBufferContents((Reference) runtime.executeScript("new ArrayBuffer(0)"));
+            assertEquals(0, empty.capacity());
+        }
+    }
+
+    @Test
+    public void arrayBufferContentsOutliveTheRuntime() {
+        ByteBuffer contents;
+        try (Runtime runtime = (Runtime) engine.newRuntime()) {
+            Reference bytes = (Reference) runtime.executeScript("new Uint8Array([1, 2, 3])");
+            contents = runtime.getArrayBufferContents(bytes);
+            runtime.collectGarbage();
+            assertEquals(2, contents.get(1));
+        }
+
+        // The isolate and its ArrayBuffers are gone, but the buffer still owns the memory
+        assertEquals(3, contents.get(2));
+        contents.put(0, (byte) 4);
+        assertEquals(4, contents.get(0));
+    }
 }
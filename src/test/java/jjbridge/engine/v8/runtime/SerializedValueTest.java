@@ -0,0 +1,67 @@
+package jjbridge.engine.v8.runtime;
+
+import jjbridge.engine.v8.V8;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SerializedValueTest {
+    @Mock private V8 v8;
+    private ByteBuffer buffer;
+    private SerializedValue value;
+
+    @BeforeEach
+    public void before() {
+        buffer = ByteBuffer.allocateDirect(16);
+        value = new SerializedValue(v8, buffer);
+    }
+
+    @Test
+    public void size() {
+        assertEquals(16, value.size());
+        assertSame(buffer, value.acquire());
+        value.release();
+        assertFalse(value.isClosed());
+    }
+
+    @Test
+    public void closeReleasesOnce() {
+        value.close();
+        value.close();
+
+        assertTrue(value.isClosed());
+        verify(v8, times(1)).releaseSerializedValue(buffer);
+    }
+
+    @Test
+    public void closedValueCannotBeRead() {
+        value.close();
+
+        assertThrows(IllegalStateException.class, value::size);
+        assertThrows(IllegalStateException.class, value::acquire);
+        value.release();
+    }
+
+    @Test
+    public void closeWaitsForReaders() throws InterruptedException {
+        value.acquire();
+        Thread closer = new Thread(value::close);
+        closer.start();
+        closer.join(100);
+        assertTrue(closer.isAlive());
+        verify(v8, never()).releaseSerializedValue(buffer);
+
+        value.release();
+        closer.join();
+        assertTrue(value.isClosed());
+        verify(v8).releaseSerializedValue(buffer);
+    }
+}
@@ -0,0 +1,119 @@
+package jjbridge.engine.v8.runtime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadNativeCallDispatcherTest {
+    private NativeCallDispatcher dispatcher;
+
+    @BeforeEach
+    public void before() {
+        dispatcher = new NativeCallDispatcher();
+    }
+
+    private static <T> T onVirtualThread(Supplier<T> task) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return executor.submit(task::get).get();
+        }
+    }
+
+    @Test
+    public void platformThreadsCallDirectly() {
+        Thread caller = Thread.currentThread();
+        assertTrue(dispatcher.callsDirectly());
+        assertSame(caller, dispatcher.execute(Thread::currentThread));
+        assertSame(caller, dispatcher.access(Thread::currentThread));
+    }
+
+    @Test
+    public void virtualThreadsExecuteOnPlatformThreads() throws Exception {
+        assertFalse(onVirtualThread(dispatcher::callsDirectly));
+
+        Thread executing = onVirtualThread(() -> dispatcher.execute(Thread::currentThread));
+        assertFalse(executing.isVirtual());
+        assertTrue(executing.getName().startsWith("V8 Platform Call"));
+
+        Thread[] runnableThread = new Thread[1];
+        onVirtualThread(() -> {
+            dispatcher.execute(() -> {
+                runnableThread[0] = Thread.currentThread();
+            });
+            return null;
+        });
+        assertFalse(runnableThread[0].isVirtual());
+    }
+
+    @Test
+    public void callerIsTheVirtualThreadDelegatingTheCall() throws Exception {
+        Thread[] threads = onVirtualThread(() -> new Thread[]{Thread.currentThread(),
+                dispatcher.execute(NativeCallDispatcher::caller), dispatcher.access(NativeCallDispatcher::caller)});
+        assertTrue(threads[0].isVirtual());
+        assertSame(threads[0], threads[1]);
+        assertSame(threads[0], threads[2]);
+    }
+
+    @Test
+    public void virtualThreadsAccessOnCallingThread() throws Exception {
+        Thread[] threads = onVirtualThread(() -> new Thread[]{Thread.currentThread(),
+                dispatcher.access(Thread::currentThread)});
+        assertTrue(threads[0].isVirtual());
+        assertSame(threads[0], threads[1]);
+    }
+
+    @Test
+    public void virtualThreadCallsAreSerialized() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        Supplier<Void> call = () -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return null;
+        };
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                boolean execute = i % 2 == 0;
+                futures.add(executor.submit(() -> execute ? dispatcher.execute(call) : dispatcher.access(call)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    public void exceptionsArePropagated() {
+        RuntimeException exception = new RuntimeException("error");
+        ExecutionException executed = assertThrows(ExecutionException.class, () -> onVirtualThread(() ->
+                dispatcher.execute(() -> {
+                    throw exception;
+                })));
+        assertSame(exception, executed.getCause());
+
+        ExecutionException accessed = assertThrows(ExecutionException.class, () -> onVirtualThread(() ->
+                dispatcher.access(() -> {
+                    throw exception;
+                })));
+        assertSame(exception, accessed.getCause());
+    }
+}